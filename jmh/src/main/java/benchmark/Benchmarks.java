@@ -0,0 +1,32 @@
+package benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Entry point of benchmarks.jar: the JMH command line (benchmark regex, -f,
+ * -wi, -i, -p, -rf json, -l, -h, ...) with the GC profiler always on, so the
+ * allocation rate and GC counts come with every result.
+ */
+public class Benchmarks {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+		CommandLineOptions options = new CommandLineOptions(args);
+		if (options.shouldHelp()) {
+			options.showHelp();
+			return;
+		}
+		Runner runner = new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build());
+		if (options.shouldList()) {
+			runner.list();
+			return;
+		}
+		runner.run();
+	}
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.color.Color;
+
+// the ChessMatch calls the game loop makes on every move
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmarks {
+
+	@Param({ "italian", "queens-gambit", "endgame", "queen-endgame" })
+	public String position;
+
+	private ChessMatch chessMatch;
+
+	// played back and forth by performChessMove, so it needs its own match
+	private ChessMatch shuffled;
+	private ChessPosition[] shuffle;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		chessMatch = Positions.match(position);
+		shuffled = Positions.match(position);
+		shuffle = Positions.shuffle(position);
+		next = 0;
+	}
+
+	@Benchmark
+	public boolean testCheck() {
+		return chessMatch.testCheck(Color.WHITE);
+	}
+
+	@Benchmark
+	public boolean testCheckMate() {
+		return chessMatch.testCheckMate(Color.WHITE);
+	}
+
+	@Benchmark
+	public ChessPiece[][] getPieces() {
+		return chessMatch.getPieces();
+	}
+
+	@Benchmark
+	public ChessPiece performChessMove() {
+		int i = next;
+		next = (i + 2) % shuffle.length;
+		// the shuffle comes back to where it started, so its moves need not be kept for take back
+		if (i == 0) {
+			shuffled.clearMoveHistory();
+		}
+		return shuffled.performChessMove(shuffle[i], shuffle[i + 1]);
+	}
+}
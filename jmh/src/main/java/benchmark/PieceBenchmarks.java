@@ -0,0 +1,77 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.MoveList;
+
+/*
+ * Move generation of each piece class, over every piece of that class in the
+ * position. Only positions with all six classes on the board are used.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceBenchmarks {
+
+	@Param({ "italian", "queens-gambit", "queen-endgame" })
+	public String position;
+
+	@Param({ "Pawn", "Knight", "Bishop", "Rook", "Queen", "King" })
+	public String piece;
+
+	private ChessPiece[] pieces;
+	private MoveList moves = new MoveList();
+
+	@Setup
+	public void setUp() {
+		ChessMatch chessMatch = Positions.match(position);
+		List<ChessPiece> found = new ArrayList<>();
+		for (ChessPiece[] row : chessMatch.getPieces()) {
+			for (ChessPiece p : row) {
+				if (p != null && p.getClass().getSimpleName().equals(piece)) {
+					found.add(p);
+				}
+			}
+		}
+		if (found.isEmpty()) {
+			throw new IllegalStateException("No " + piece + " in " + position);
+		}
+		pieces = found.toArray(new ChessPiece[0]);
+	}
+
+	@Benchmark
+	public void possibleMoves(Blackhole blackhole) {
+		for (ChessPiece p : pieces) {
+			blackhole.consume(p.possibleMoves());
+		}
+	}
+
+	@Benchmark
+	public int generateMoves() {
+		moves.clear();
+		for (ChessPiece p : pieces) {
+			p.generateMoves(moves);
+		}
+		return moves.size();
+	}
+}
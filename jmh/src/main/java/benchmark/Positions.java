@@ -0,0 +1,58 @@
+package benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import chess.ChessMatch;
+import chess.ChessPosition;
+
+/*
+ * The fixed positions every benchmark runs on, named by the @Param values of
+ * the benchmark states. Each has four moves that bring it back to itself, used
+ * to benchmark performChessMove without the position drifting.
+ */
+final class Positions {
+
+	private static final Map<String, String> FENS = new HashMap<>();
+	private static final Map<String, String> SHUFFLES = new HashMap<>();
+
+	static {
+		// 1.e4 e5 2.Nf3 Nc6 3.Bc4 Bc5 4.c3 Nf6 5.d3 d6 6.O-O O-O 7.Nbd2 a6 8.a4 Ba7 9.h3 h6
+		FENS.put("italian", "r1bq1rk1/bpp2pp1/p1np1n1p/4p3/P1B1P3/2PP1N1P/1P1N1PP1/R1BQ1RK1 w - - 0 10");
+		SHUFFLES.put("italian", "d2b1 c6b8 b1d2 b8c6");
+
+		// 1.d4 d5 2.c4 e6 3.Nc3 Nf6 4.Bg5 Be7 5.e3 O-O 6.Nf3 Nbd7 7.Rc1 c6 8.Bd3 dxc4 9.Bxc4 Nd5
+		FENS.put("queens-gambit", "r1bq1rk1/pp1nbppp/2p1p3/3n2B1/2BP4/2N1PN2/PP3PPP/2RQK2R w K - 1 10");
+		SHUFFLES.put("queens-gambit", "f3g1 d7b8 g1f3 b8d7");
+
+		// queens traded early, both sides castled long
+		FENS.put("endgame", "2kr3r/ppp2ppp/4pn2/8/3P4/2P2B2/P1P2PPP/2KR3R w - - 1 13");
+		SHUFFLES.put("endgame", "h1g1 h8g8 g1h1 g8h8");
+
+		// queens still on, so every piece class has a piece to move
+		FENS.put("queen-endgame", "4r1k1/5pp1/2n4p/3b4/8/2NB1Q1P/1q3PP1/6K1 w - - 0 32");
+		SHUFFLES.put("queen-endgame", "c3b1 c6b8 b1c3 b8c6");
+	}
+
+	private Positions() {
+	}
+
+	static ChessMatch match(String name) {
+		String fen = FENS.get(name);
+		if (fen == null) {
+			throw new IllegalArgumentException("Unknown position " + name);
+		}
+		return new ChessMatch(fen);
+	}
+
+	// source and target of each shuffle move, one after the other
+	static ChessPosition[] shuffle(String name) {
+		String[] moves = SHUFFLES.get(name).split(" ");
+		ChessPosition[] positions = new ChessPosition[moves.length * 2];
+		for (int i = 0; i < moves.length; i++) {
+			positions[2 * i] = ChessPosition.of(moves[i].charAt(0), moves[i].charAt(1) - '0');
+			positions[2 * i + 1] = ChessPosition.of(moves[i].charAt(2), moves[i].charAt(3) - '0');
+		}
+		return positions;
+	}
+}
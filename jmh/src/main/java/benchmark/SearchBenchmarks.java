@@ -0,0 +1,70 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chess.engine.ParallelSearch;
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+
+/*
+ * Scaling of the parallel search: the time to visit a fixed number of nodes
+ * with each thread count, starting every search from an empty transposition
+ * table. Nodes per second is NODES divided by the time per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmarks {
+
+	public static final long NODES = 1_000_000;
+
+	@Param({ "italian", "queens-gambit" })
+	public String position;
+
+	@Param({ "1", "2", "4" })
+	public int threads;
+
+	@Param({ "64" })
+	public int hashMb;
+
+	private ParallelSearch search;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		search = new ParallelSearch(Positions.match(position), threads, new TranspositionTable(hashMb));
+	}
+
+	// a search takes milliseconds, so clearing the table before each one does not skew the result
+	@Setup(Level.Invocation)
+	public void clearTable() {
+		search.getTranspositionTable().clear();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		search.close();
+	}
+
+	@Benchmark
+	public SearchResult search() {
+		return search.search(Search.MAX_PLY, Long.MAX_VALUE, NODES);
+	}
+}
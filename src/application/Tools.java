@@ -0,0 +1,282 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+import chess.Perft;
+import chess.archive.GameArchive;
+import chess.archive.GameArchiveWriter;
+import chess.archive.GameHeader;
+import chess.archive.OpeningBook;
+import chess.archive.OpeningBook.BookMove;
+import chess.archive.OpeningBookBuilder;
+import chess.archive.PositionIndex;
+import chess.archive.PositionIndex.Occurrence;
+import chess.archive.PositionIndexBuilder;
+import chess.pgn.PgnImporter;
+import chess.pgn.San;
+import chess.tablebase.Material;
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseResult;
+import chess.tablebase.Tablebases;
+
+/*
+ * Command line tools for the engine and its data files. The first argument
+ * names the tool (perft, pgn, archive, index, book or tablebase) and the rest
+ * are passed to it.
+ */
+public class Tools {
+
+	public static void main(String[] args) throws IOException {
+		String tool = args.length > 0 ? args[0] : "";
+		String[] toolArgs = args.length > 0 ? Arrays.copyOfRange(args, 1, args.length) : args;
+		if (tool.equals("perft")) {
+			perft(toolArgs);
+		} else if (tool.equals("pgn")) {
+			importPgn(toolArgs);
+		} else if (tool.equals("archive")) {
+			archive(toolArgs);
+		} else if (tool.equals("index")) {
+			index(toolArgs);
+		} else if (tool.equals("book")) {
+			book(toolArgs);
+		} else if (tool.equals("tablebase")) {
+			tablebase(toolArgs);
+		} else {
+			System.out.println("Usage: Tools perft [depth] [threads] [FEN]");
+			System.out.println("       Tools perft verify [pieces] [max depth]");
+			System.out.println("       Tools pgn <file.pgn> [threads]");
+			System.out.println("       Tools archive import <file.pgn> <archive> [threads]");
+			System.out.println("       Tools archive show <archive> <index>");
+			System.out.println("       Tools index build <archive> <index> [run entries]");
+			System.out.println("       Tools index find <archive> <index> <FEN>");
+			System.out.println("       Tools book build <archive> <book> [max ply]");
+			System.out.println("       Tools book probe <book> <FEN>");
+			System.out.println("       Tools tablebase generate <directory> <threads> <material>...");
+			System.out.println("       Tools tablebase probe <directory> <FEN>");
+		}
+	}
+
+	/*
+	 * "[depth] [threads] [FEN]" counts the leaf nodes, with a divide when
+	 * single-threaded; "verify [pieces] [max depth]" checks the published counts.
+	 */
+	private static void perft(String[] args) {
+		if (args.length > 0 && args[0].equals("verify")) {
+			boolean pieces = args.length > 1 && args[1].equals("pieces");
+			int next = pieces ? 2 : 1;
+			int maxDepth = args.length > next ? Integer.parseInt(args[next]) : 4;
+			if (!Perft.verify(maxDepth, pieces, System.out)) {
+				System.out.println("Perft counts do not match");
+				System.exit(1);
+			}
+			return;
+		}
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		// the remaining arguments, if any, are the fields of a FEN position
+		String fen = args.length > 2 ? String.join(" ", Arrays.copyOfRange(args, 2, args.length)) : null;
+		ChessMatch chessMatch = fen == null ? new ChessMatch() : new ChessMatch(fen);
+		if (threads <= 1) {
+			new Perft(chessMatch).divide(depth, System.out);
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		long nodes = new Perft(chessMatch).parallelPerft(depth, 2, pool);
+		long elapsed = System.nanoTime() - start;
+		pool.shutdown();
+		System.out.println("Nodes: " + nodes);
+		System.out.println("Time: " + (elapsed / 1_000_000) + " ms");
+		System.out.println("Nodes/sec: " + perSecond(nodes, elapsed));
+	}
+
+	// replays every game of a PGN file and prints the counts and the throughput
+	private static void importPgn(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: Tools pgn <file.pgn> [threads]");
+			return;
+		}
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		PgnImporter importer = new PgnImporter();
+		AtomicLong plies = new AtomicLong();
+		long start = System.nanoTime();
+		try (BufferedReader in = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.ISO_8859_1)) {
+			importer.importGames(in, game -> plies.addAndGet(game.getMoves().length), threads);
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println("Games: " + importer.getImported());
+		System.out.println("Failed: " + importer.getFailed());
+		System.out.println("Plies: " + plies.get());
+		System.out.println("Time: " + (elapsed / 1_000_000) + " ms");
+		System.out.println("Games/sec: " + perSecond(importer.getImported(), elapsed));
+	}
+
+	/*
+	 * "import <file.pgn> <archive> [threads]" appends the games of a PGN file,
+	 * "show <archive> <index>" prints one game.
+	 */
+	private static void archive(String[] args) throws IOException {
+		if (args.length >= 3 && args[0].equals("import")) {
+			int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+			PgnImporter importer = new PgnImporter();
+			long start = System.nanoTime();
+			try (GameArchiveWriter writer = new GameArchiveWriter(Paths.get(args[2]));
+					BufferedReader in = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.ISO_8859_1)) {
+				importer.importGames(in, game -> {
+					synchronized (writer) {
+						try {
+							writer.append(game);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+				}, threads);
+			}
+			System.out.println("Games: " + importer.getImported());
+			System.out.println("Failed: " + importer.getFailed());
+			System.out.println("Time: " + (System.nanoTime() - start) / 1_000_000 + " ms");
+		} else if (args.length >= 3 && args[0].equals("show")) {
+			try (GameArchive archive = new GameArchive(Paths.get(args[1]))) {
+				long index = Long.parseLong(args[2]);
+				GameHeader header = archive.header(index);
+				System.out.println(header);
+				String fen = header.getStartFen();
+				ChessMatch chessMatch = fen == null ? new ChessMatch() : new ChessMatch(fen);
+				MoveList scratch = new MoveList();
+				StringBuilder sb = new StringBuilder();
+				for (int move : archive.moves(index)) {
+					sb.append(San.toSan(chessMatch, move, scratch)).append(' ');
+					chessMatch.makeMove(move);
+				}
+				System.out.println(sb.append(header.getResultText()));
+			}
+		} else {
+			System.out.println("Usage: Tools archive import <file.pgn> <archive> [threads]");
+			System.out.println("       Tools archive show <archive> <index>");
+		}
+	}
+
+	/*
+	 * "build <archive> <index> [run entries]" indexes every position of an
+	 * archive, "find <archive> <index> <FEN>" lists the games that reached a
+	 * position.
+	 */
+	private static void index(String[] args) throws IOException {
+		if (args.length >= 3 && args[0].equals("build")) {
+			long start = System.nanoTime();
+			try (GameArchive archive = new GameArchive(Paths.get(args[1]))) {
+				PositionIndexBuilder builder = args.length > 3 ? new PositionIndexBuilder(Integer.parseInt(args[3]))
+						: new PositionIndexBuilder();
+				builder.build(archive, Paths.get(args[2]));
+			}
+			try (PositionIndex index = new PositionIndex(Paths.get(args[2]))) {
+				System.out.println("Positions: " + index.size());
+			}
+			System.out.println("Time: " + (System.nanoTime() - start) / 1_000_000 + " ms");
+		} else if (args.length >= 4 && args[0].equals("find")) {
+			try (GameArchive archive = new GameArchive(Paths.get(args[1]));
+					PositionIndex index = new PositionIndex(Paths.get(args[2]))) {
+				ChessMatch chessMatch = new ChessMatch(fen(args, 3));
+				long start = System.nanoTime();
+				List<Occurrence> found = index.find(chessMatch);
+				long elapsed = System.nanoTime() - start;
+				for (Occurrence occurrence : found) {
+					System.out.println(occurrence + ": " + archive.header(occurrence.getGame()));
+				}
+				System.out.println("Occurrences: " + found.size() + " (" + elapsed / 1000 + " us)");
+			}
+		} else {
+			System.out.println("Usage: Tools index build <archive> <index> [run entries]");
+			System.out.println("       Tools index find <archive> <index> <FEN>");
+		}
+	}
+
+	/*
+	 * "build <archive> <book> [max ply]" makes a book from the openings of an
+	 * archive, "probe <book> <FEN>" lists the book moves of a position.
+	 */
+	private static void book(String[] args) throws IOException {
+		if (args.length >= 3 && args[0].equals("build")) {
+			long start = System.nanoTime();
+			int maxPly = args.length > 3 ? Integer.parseInt(args[3]) : OpeningBookBuilder.DEFAULT_MAX_PLY;
+			try (GameArchive archive = new GameArchive(Paths.get(args[1]));
+					OpeningBookBuilder builder = new OpeningBookBuilder(Paths.get(args[2]), maxPly)) {
+				builder.addGames(archive);
+				builder.build();
+			}
+			try (OpeningBook book = new OpeningBook(Paths.get(args[2]))) {
+				System.out.println("Entries: " + book.size());
+			}
+			System.out.println("Time: " + (System.nanoTime() - start) / 1_000_000 + " ms");
+		} else if (args.length >= 3 && args[0].equals("probe")) {
+			try (OpeningBook book = new OpeningBook(Paths.get(args[1]))) {
+				ChessMatch chessMatch = new ChessMatch(fen(args, 2));
+				long start = System.nanoTime();
+				List<BookMove> found = book.moves(chessMatch);
+				long elapsed = System.nanoTime() - start;
+				for (BookMove bookMove : found) {
+					System.out.println(bookMove);
+				}
+				System.out.println("Moves: " + found.size() + " (" + elapsed / 1000 + " us)");
+			}
+		} else {
+			System.out.println("Usage: Tools book build <archive> <book> [max ply]");
+			System.out.println("       Tools book probe <book> <FEN>");
+		}
+	}
+
+	/*
+	 * "generate <directory> <threads> <material>..." builds tables (e.g. KQK
+	 * KRK KPK KBNK), "probe <directory> <FEN>" looks a position up.
+	 */
+	private static void tablebase(String[] args) throws IOException {
+		if (args.length >= 4 && args[0].equals("generate")) {
+			Tablebases tablebases = new Tablebases(Paths.get(args[1]));
+			ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(args[2]));
+			try {
+				for (int i = 3; i < args.length; i++) {
+					long start = System.nanoTime();
+					Tablebase table = tablebases.generate(Material.of(args[i]), pool);
+					System.out.println(table + ": " + (System.nanoTime() - start) / 1_000_000 + " ms");
+				}
+			} finally {
+				pool.shutdown();
+			}
+		} else if (args.length >= 3 && args[0].equals("probe")) {
+			Tablebases tablebases = new Tablebases(Paths.get(args[1]));
+			ChessMatch chessMatch = new ChessMatch(fen(args, 2));
+			TablebaseResult result = tablebases.probe(chessMatch);
+			if (result == null) {
+				System.out.println("Not in the tablebases");
+			} else {
+				int move = tablebases.bestMove(chessMatch);
+				System.out.println(result + (move == Move.NONE ? "" : ", best move " + Move.toString(move)));
+			}
+		} else {
+			System.out.println("Usage: Tools tablebase generate <directory> <threads> <material>...");
+			System.out.println("       Tools tablebase probe <directory> <FEN>");
+		}
+	}
+
+	// a FEN given as separate arguments from index from on
+	private static String fen(String[] args, int from) {
+		return String.join(" ", Arrays.copyOfRange(args, from, args.length));
+	}
+
+	// divides first, so that the count cannot overflow on long runs
+	private static long perSecond(long count, long elapsedNanos) {
+		return elapsedNanos == 0 ? 0 : (long) (count / (elapsedNanos / 1e9));
+	}
+}
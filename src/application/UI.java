@@ -10,6 +10,7 @@ import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.ChessPosition;
 import chess.color.Color;
+import chess.status.GameStatus;
 
 public class UI {
 	
@@ -44,7 +45,7 @@ public class UI {
 			String position = sc.nextLine();
 			char column = position.charAt(0);
 			int row = Integer.parseInt(position.substring(1));
-			return new ChessPosition(column, row);
+			return ChessPosition.of(column, row);
 		} catch (RuntimeException e) {
 			throw new InputMismatchException("Error reading chess position. Valid values are from a1 to h8.");
 		}
@@ -79,14 +80,23 @@ public class UI {
 		System.out.println();
 		System.out.print("\nTurn: " + chessMatch.getTurn() + "\n");
 		
-		if (!chessMatch.getCheckMate()) {
+		if (chessMatch.getCheckMate()) {
+			System.out.println("CHECKMATE!");
+			System.out.println("Winner: " + chessMatch.getWinner());
+		} else if (chessMatch.getStalemate()) {
+			System.out.println("STALEMATE!");
+			System.out.println("Draw");
+		} else if (chessMatch.getStatus() == GameStatus.DRAW_BY_FIFTY_MOVES) {
+			System.out.println("FIFTY MOVES WITHOUT A CAPTURE OR A PAWN MOVE!");
+			System.out.println("Draw");
+		} else if (chessMatch.getStatus() == GameStatus.DRAW_BY_REPETITION) {
+			System.out.println("THREEFOLD REPETITION!");
+			System.out.println("Draw");
+		} else {
 			System.out.print("\nWaiting player: " + chessMatch.getCurrentPlayer() + "\n");
 			if (chessMatch.getCheck()) {
 				System.out.println("CHECK!");
 			}			
-		} else {
-			System.out.println("CHECKMATE!");
-			System.out.println("Winner: " + chessMatch.getCurrentPlayer());
 		}
 	}
 	
@@ -37,12 +37,39 @@ public class Board {
 		return piece[position.getRow()][position.getColumn()];
 	}
 	
+	// index of a square counted row by row: row * columns + column
+	public int index(Position position) {
+		return position.getRow() * columns + position.getColumn();
+	}
+	
+	public Position position(int index) {
+		if (index < 0 || index >= rows * columns) {
+			throw new BoardException("Position not on the board");
+		}
+		return Square.of(index / columns, index % columns);
+	}
+	
+	public Piece piece(int index) {
+		if (index < 0 || index >= rows * columns) {
+			throw new BoardException("Position not on the board");
+		}
+		return piece[index / columns][index % columns];
+	}
+	
+	public void placePiece(Piece piece, int index) {
+		placePiece(piece, position(index));
+	}
+	
+	public Piece removePiece(int index) {
+		return removePiece(position(index));
+	}
+	
 	public void placePiece(Piece piece, Position position) {
 		if (thereIsAPiece(position) || !positionExists(position)) {
 			throw new BoardException("There is already a piece on position " + position);
 		}
 		this.piece[position.getRow()][position.getColumn()] = piece;
-		piece.position = position;
+		piece.position = Square.of(position);
 	}
 	
 	public Piece removePiece(Position position) {
@@ -19,10 +19,12 @@ public abstract class Piece {
 		return possibleMoves()[position.getRow()][position.getColumn()];
 	}
 	
+	// subclasses that can tell without building the whole matrix should override this
 	public boolean isThereAnyPossibleMove() {
-		for (int i = 0; i < possibleMoves().length; i++) {
-			for (int k = 0; k < possibleMoves().length; k++) {
-				if (possibleMoves()[i][k]) {
+		boolean[][] mat = possibleMoves();
+		for (int i = 0; i < mat.length; i++) {
+			for (int k = 0; k < mat[i].length; k++) {
+				if (mat[i][k]) {
 					return true;
 				}
 			}
@@ -0,0 +1,45 @@
+package boardgame;
+
+/*
+ * Position interned by index. The squares of boards up to 8x8 are created
+ * once and shared, so Square.of never allocates for them.
+ */
+public final class Square extends Position {
+
+	public static final int SIZE = 8;
+
+	private static final Square[] SQUARES = new Square[SIZE * SIZE];
+
+	static {
+		for (int i = 0; i < SQUARES.length; i++) {
+			SQUARES[i] = new Square(i / SIZE, i % SIZE);
+		}
+	}
+
+	private Square(int row, int column) {
+		super(row, column);
+	}
+
+	public static Square of(int row, int column) {
+		if (row >= 0 && row < SIZE && column >= 0 && column < SIZE) {
+			return SQUARES[row * SIZE + column];
+		}
+		return new Square(row, column);
+	}
+
+	// square of an index on an 8-column board (index = row * 8 + column)
+	public static Square of(int index) {
+		if (index < 0 || index >= SQUARES.length) {
+			throw new BoardException("Square index " + index + " is not on an 8x8 board");
+		}
+		return SQUARES[index];
+	}
+
+	public static Square of(Position position) {
+		return position instanceof Square ? (Square) position : of(position.getRow(), position.getColumn());
+	}
+
+	public int index() {
+		return getRow() * SIZE + getColumn();
+	}
+}
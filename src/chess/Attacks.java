@@ -0,0 +1,189 @@
+package chess;
+
+/*
+ * Attack tables built once at class load: fixed patterns for knights, kings
+ * and pawn captures, and magic bitboard lookups for rooks and bishops. Square
+ * indexes follow ChessBoard (square = row * 8 + column).
+ */
+public final class Attacks {
+
+	public static final long[] KNIGHT = new long[64];
+	public static final long[] KING = new long[64];
+
+	// pawn capture patterns, indexed by color ordinal and square
+	public static final long[][] PAWN = new long[2][64];
+
+	// squares strictly between two aligned squares, and the whole line through them
+	public static final long[][] BETWEEN = new long[64][64];
+	public static final long[][] LINE = new long[64][64];
+
+	private static final int[][] ROOK_DIRECTIONS = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
+	private static final int[][] BISHOP_DIRECTIONS = { { -1, -1 }, { -1, 1 }, { 1, -1 }, { 1, 1 } };
+
+	private static final long[] ROOK_MASKS = new long[64];
+	private static final long[] ROOK_MAGICS = new long[64];
+	private static final int[] ROOK_SHIFTS = new int[64];
+	private static final long[][] ROOK_TABLE = new long[64][];
+
+	private static final long[] BISHOP_MASKS = new long[64];
+	private static final long[] BISHOP_MAGICS = new long[64];
+	private static final int[] BISHOP_SHIFTS = new int[64];
+	private static final long[][] BISHOP_TABLE = new long[64][];
+
+	private static long seed = 0x2545F4914F6CDD1DL;
+
+	static {
+		int[][] knightSteps = { { 2, 1 }, { 2, -1 }, { -2, 1 }, { -2, -1 }, { 1, 2 }, { 1, -2 }, { -1, 2 }, { -1, -2 } };
+		int[][] kingSteps = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 }, { -1, -1 }, { -1, 1 }, { 1, -1 }, { 1, 1 } };
+
+		for (int square = 0; square < 64; square++) {
+			KNIGHT[square] = steps(square, knightSteps);
+			KING[square] = steps(square, kingSteps);
+			// white pawns move towards row 0, black pawns towards row 7
+			PAWN[1][square] = steps(square, new int[][] { { -1, -1 }, { -1, 1 } });
+			PAWN[0][square] = steps(square, new int[][] { { 1, -1 }, { 1, 1 } });
+
+			initMagic(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_TABLE);
+			initMagic(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_TABLE);
+
+			initLines(square, ROOK_DIRECTIONS);
+			initLines(square, BISHOP_DIRECTIONS);
+		}
+	}
+
+	private Attacks() {
+	}
+
+	public static long rook(int square, long occupied) {
+		return ROOK_TABLE[square][(int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+	}
+
+	public static long bishop(int square, long occupied) {
+		return BISHOP_TABLE[square][(int) (((occupied & BISHOP_MASKS[square])
+				* BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+	}
+
+	public static long queen(int square, long occupied) {
+		return rook(square, occupied) | bishop(square, occupied);
+	}
+
+	private static long steps(int square, int[][] steps) {
+		long attacks = 0;
+		int row = ChessBoard.row(square);
+		int column = ChessBoard.column(square);
+		for (int[] step : steps) {
+			int r = row + step[0];
+			int c = column + step[1];
+			if (r >= 0 && r < 8 && c >= 0 && c < 8) {
+				attacks |= 1L << ChessBoard.square(r, c);
+			}
+		}
+		return attacks;
+	}
+
+	// attacks along the given directions, stopping at the first occupied square
+	private static long slide(int square, long occupied, int[][] directions) {
+		long attacks = 0;
+		for (int[] direction : directions) {
+			int r = ChessBoard.row(square) + direction[0];
+			int c = ChessBoard.column(square) + direction[1];
+			while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+				long bit = 1L << ChessBoard.square(r, c);
+				attacks |= bit;
+				if ((occupied & bit) != 0) {
+					break;
+				}
+				r += direction[0];
+				c += direction[1];
+			}
+		}
+		return attacks;
+	}
+
+	private static void initLines(int square, int[][] directions) {
+		for (int[] direction : directions) {
+			long line = (1L << square) | ray(square, direction[0], direction[1]) | ray(square, -direction[0], -direction[1]);
+			long between = 0;
+			int r = ChessBoard.row(square) + direction[0];
+			int c = ChessBoard.column(square) + direction[1];
+			while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+				int target = ChessBoard.square(r, c);
+				BETWEEN[square][target] = between;
+				LINE[square][target] = line;
+				between |= 1L << target;
+				r += direction[0];
+				c += direction[1];
+			}
+		}
+	}
+
+	private static long ray(int square, int rowStep, int columnStep) {
+		return slide(square, 0, new int[][] { { rowStep, columnStep } });
+	}
+
+	// relevant occupancy: the rays without their last square
+	private static long mask(int square, int[][] directions) {
+		long mask = 0;
+		for (int[] direction : directions) {
+			int r = ChessBoard.row(square) + direction[0];
+			int c = ChessBoard.column(square) + direction[1];
+			while (r + direction[0] >= 0 && r + direction[0] < 8 && c + direction[1] >= 0 && c + direction[1] < 8) {
+				mask |= 1L << ChessBoard.square(r, c);
+				r += direction[0];
+				c += direction[1];
+			}
+		}
+		return mask;
+	}
+
+	private static void initMagic(int square, int[][] directions, long[] masks, long[] magics, int[] shifts,
+			long[][] tables) {
+		long mask = mask(square, directions);
+		int bits = Long.bitCount(mask);
+		int size = 1 << bits;
+
+		// enumerate every subset of the mask with the carry-rippler trick
+		long[] occupancies = new long[size];
+		long[] attacks = new long[size];
+		long subset = 0;
+		for (int i = 0; i < size; i++) {
+			occupancies[i] = subset;
+			attacks[i] = slide(square, subset, directions);
+			subset = (subset - mask) & mask;
+		}
+
+		long[] table = new long[size];
+		int[] epoch = new int[size];
+		for (int attempt = 1;; attempt++) {
+			long magic = random() & random() & random();
+			if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+				continue;
+			}
+			boolean collision = false;
+			for (int i = 0; i < size && !collision; i++) {
+				int index = (int) ((occupancies[i] * magic) >>> (64 - bits));
+				if (epoch[index] != attempt) {
+					epoch[index] = attempt;
+					table[index] = attacks[i];
+				} else if (table[index] != attacks[i]) {
+					collision = true;
+				}
+			}
+			if (!collision) {
+				masks[square] = mask;
+				magics[square] = magic;
+				shifts[square] = 64 - bits;
+				tables[square] = table;
+				return;
+			}
+		}
+	}
+
+	// xorshift64*
+	private static long random() {
+		seed ^= seed >>> 12;
+		seed ^= seed << 25;
+		seed ^= seed >>> 27;
+		return seed * 0x2545F4914F6CDD1DL;
+	}
+}
@@ -0,0 +1,224 @@
+package chess;
+
+import boardgame.Board;
+import boardgame.BoardException;
+import boardgame.Piece;
+import boardgame.Position;
+import chess.color.Color;
+
+/*
+ * 8x8 board that keeps, next to the object grid of Board, one 64-bit bitboard
+ * per piece type and color plus the occupancy of each color. Square indexes
+ * follow the Position layout: square = row * 8 + column, so a8 is 0 and h1 is 63.
+ *
+ * It also keeps per-color attack maps up to date on every placement and
+ * removal: the attack set of each piece, how many pieces of each color attack
+ * each square, and the resulting attacked-squares bitboard. Only the changed
+ * square and the sliders whose rays cross it are recomputed.
+ */
+public class ChessBoard extends Board {
+
+	public static final int PAWN = 0;
+	public static final int KNIGHT = 1;
+	public static final int BISHOP = 2;
+	public static final int ROOK = 3;
+	public static final int QUEEN = 4;
+	public static final int KING = 5;
+
+	public static final int NO_PIECE = -1;
+
+	private long[] pieces = new long[12];
+	private long[] colors = new long[2];
+	private long occupied;
+	private int[] mailbox = new int[64];
+	private long key;
+
+	private long[] attacksFrom = new long[64];
+	private byte[][] attackCount = new byte[2][64];
+	private long[] attacked = new long[2];
+
+	public ChessBoard() {
+		super(8, 8);
+		for (int i = 0; i < mailbox.length; i++) {
+			mailbox[i] = NO_PIECE;
+		}
+	}
+
+	public static int square(int row, int column) {
+		return row * 8 + column;
+	}
+
+	public static int square(Position position) {
+		return square(position.getRow(), position.getColumn());
+	}
+
+	public static int row(int square) {
+		return square >>> 3;
+	}
+
+	public static int column(int square) {
+		return square & 7;
+	}
+
+	public static int pieceCode(Color color, int type) {
+		return color.ordinal() * 6 + type;
+	}
+
+	public static int typeOf(int pieceCode) {
+		return pieceCode % 6;
+	}
+
+	public static Color colorOf(int pieceCode) {
+		return pieceCode < 6 ? Color.BLACK : Color.WHITE;
+	}
+
+	public long occupied() {
+		return occupied;
+	}
+
+	public long pieces(Color color) {
+		return colors[color.ordinal()];
+	}
+
+	public long pieces(Color color, int type) {
+		return pieces[pieceCode(color, type)];
+	}
+
+	public long pieces(int type) {
+		return pieces[type] | pieces[6 + type];
+	}
+
+	// Zobrist key of the piece placement only
+	public long getKey() {
+		return key;
+	}
+
+	public long attacks(Color color) {
+		return attacked[color.ordinal()];
+	}
+
+	public long attacksFrom(int square) {
+		return attacksFrom[square];
+	}
+
+	public boolean isAttacked(int square, Color color) {
+		return attackCount[color.ordinal()][square] != 0;
+	}
+
+	public int pieceCode(int square) {
+		return mailbox[square];
+	}
+
+	public boolean isOccupied(int square) {
+		return (occupied & (1L << square)) != 0;
+	}
+
+	public boolean isOccupied(int square, Color color) {
+		return (colors[color.ordinal()] & (1L << square)) != 0;
+	}
+
+	@Override
+	public ChessPiece piece(int square) {
+		if (!isOccupied(square)) {
+			return null;
+		}
+		return (ChessPiece) piece(row(square), column(square));
+	}
+
+	@Override
+	public void placePiece(Piece piece, Position position) {
+		super.placePiece(piece, position);
+		ChessPiece chessPiece = (ChessPiece) piece;
+		int square = square(position);
+		long bit = 1L << square;
+		int code = pieceCode(chessPiece.getColor(), chessPiece.getType());
+		pieces[code] |= bit;
+		colors[chessPiece.getColor().ordinal()] |= bit;
+		occupied |= bit;
+		mailbox[square] = code;
+		key ^= Zobrist.PIECES[code][square];
+
+		updateAttacks(square, chessPiece.getColor().ordinal(), attacksOf(code, square));
+		updateSliders(square);
+	}
+
+	@Override
+	public Piece removePiece(Position position) {
+		Piece piece = super.removePiece(position);
+		if (piece != null) {
+			int square = square(position);
+			long bit = ~(1L << square);
+			key ^= Zobrist.PIECES[mailbox[square]][square];
+			pieces[mailbox[square]] &= bit;
+			colors[((ChessPiece) piece).getColor().ordinal()] &= bit;
+			occupied &= bit;
+			mailbox[square] = NO_PIECE;
+
+			updateAttacks(square, ((ChessPiece) piece).getColor().ordinal(), 0);
+			updateSliders(square);
+		}
+		return piece;
+	}
+
+	@Override
+	public boolean thereIsAPiece(Position position) {
+		if (!positionExists(position)) {
+			throw new BoardException("Position not on the board!");
+		}
+		return isOccupied(square(position));
+	}
+
+	private long attacksOf(int code, int square) {
+		switch (typeOf(code)) {
+		case PAWN:
+			return Attacks.PAWN[code < 6 ? 0 : 1][square];
+		case KNIGHT:
+			return Attacks.KNIGHT[square];
+		case BISHOP:
+			return Attacks.bishop(square, occupied);
+		case ROOK:
+			return Attacks.rook(square, occupied);
+		case QUEEN:
+			return Attacks.queen(square, occupied);
+		default:
+			return Attacks.KING[square];
+		}
+	}
+
+	// the sliders that see the given square must be recomputed when its occupancy changes
+	private void updateSliders(int square) {
+		long straight = pieces(ROOK) | pieces(QUEEN);
+		long diagonal = pieces(BISHOP) | pieces(QUEEN);
+		long sliders = (Attacks.rook(square, occupied) & straight) | (Attacks.bishop(square, occupied) & diagonal);
+		while (sliders != 0) {
+			int slider = Long.numberOfTrailingZeros(sliders);
+			int code = mailbox[slider];
+			updateAttacks(slider, code < 6 ? 0 : 1, attacksOf(code, slider));
+			sliders &= sliders - 1;
+		}
+	}
+
+	private void updateAttacks(int square, int color, long attacks) {
+		long old = attacksFrom[square];
+		attacksFrom[square] = attacks;
+		byte[] count = attackCount[color];
+
+		long added = attacks & ~old;
+		while (added != 0) {
+			int target = Long.numberOfTrailingZeros(added);
+			if (count[target]++ == 0) {
+				attacked[color] |= 1L << target;
+			}
+			added &= added - 1;
+		}
+
+		long removed = old & ~attacks;
+		while (removed != 0) {
+			int target = Long.numberOfTrailingZeros(removed);
+			if (--count[target] == 0) {
+				attacked[color] &= ~(1L << target);
+			}
+			removed &= removed - 1;
+		}
+	}
+}
@@ -1,12 +1,12 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import boardgame.Board;
 import boardgame.Piece;
 import boardgame.Position;
+import boardgame.Square;
 import chess.color.Color;
 import chess.pieces.Bishop;
 import chess.pieces.King;
@@ -14,25 +14,274 @@ import chess.pieces.Knight;
 import chess.pieces.Pawn;
 import chess.pieces.Queen;
 import chess.pieces.Rook;
+import chess.status.GameStatus;
 
 public class ChessMatch {
 
-	private Board board;
+	// plies without a capture or a pawn move that draw the game
+	public static final int FIFTY_MOVE_PLIES = 100;
+
+	private ChessBoard board;
 	private int turn;
 	private Color currentPlayer;
 	private boolean check;
 	private boolean checkMate;
+	private GameStatus status = GameStatus.IN_PROGRESS;
 	private ChessPiece enPassantVulnerable;
 	private ChessPiece promoted;
+	private int castlingRights;
+	private int enPassantFile = -1;
+	private long stateKey;
+	private int halfmoveClock;
 
-	private List<Piece> piecesOnTheBoard = new ArrayList<>();
+	private PieceRegistry piecesOnTheBoard = new PieceRegistry();
 	private List<Piece> capturedPieces = new ArrayList<>();
 
+	private MoveList moveBuffer = new MoveList();
+
+	// state needed to take back moves, which is also the move history of the match
+	private int[] madeMoves = new int[64];
+	private Piece[] madeCaptures = new Piece[64];
+	private ChessPiece[] madePromotedPawns = new ChessPiece[64];
+	private ChessPiece[] madeEnPassantVulnerable = new ChessPiece[64];
+	private int[] madeEnPassantFiles = new int[64];
+	private boolean[] madeChecks = new boolean[64];
+	private int[] madeHalfmoveClocks = new int[64];
+	private GameStatus[] madeStatuses = new GameStatus[64];
+	private ChessPiece[] madePromoted = new ChessPiece[64];
+	private int madeCount;
+
+	// moves taken back with takeBackMove(), the last one on top, while madeCount is still takenBackFrom
+	private int[] takenBackMoves = new int[64];
+	private int takenBackCount;
+	private int takenBackFrom;
+
+	// keys of the positions before the current one, oldest first; only the last halfmoveClock can repeat
+	private long[] positionKeys = new long[64];
+	private int positionCount;
+
+	// the position for other threads, replaced whenever a move is played, taken back or replayed
+	private volatile MatchSnapshot snapshot;
+
 	public ChessMatch() {
-		board = new Board(8, 8);
+		board = new ChessBoard();
 		turn = 1;
 		currentPlayer = Color.WHITE;
 		initialSetup();
+		updateCastlingRights();
+		publishSnapshot();
+	}
+
+	/*
+	 * Match starting from a position in Forsyth-Edwards Notation, e.g.
+	 * "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1". The move
+	 * counters may be left out.
+	 */
+	public ChessMatch(String fen) {
+		board = new ChessBoard();
+		String[] fields = fen.trim().split("\\s+");
+		if (fields.length < 4 || fields.length > 6) {
+			throw new ChessException("Invalid FEN: expected 4 to 6 fields in \"" + fen + "\"");
+		}
+
+		// piece placement, rank 8 first
+		int row = 0;
+		int column = 0;
+		for (char c : fields[0].toCharArray()) {
+			if (c == '/') {
+				if (column != 8) {
+					throw new ChessException("Invalid FEN: rank " + (8 - row) + " does not have 8 squares");
+				}
+				row++;
+				column = 0;
+			} else if (c >= '1' && c <= '8') {
+				column += c - '0';
+			} else {
+				int type = "pnbrqk".indexOf(Character.toLowerCase(c));
+				if (type < 0 || row > 7 || column > 7) {
+					throw new ChessException("Invalid FEN: unexpected '" + c + "' in piece placement");
+				}
+				Color color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
+				if (type == ChessBoard.PAWN && (row == 0 || row == 7)) {
+					throw new ChessException("Invalid FEN: pawn on rank " + (8 - row));
+				}
+				if (piecesOnTheBoard.count(color, type) == PieceRegistry.CAPACITY) {
+					throw new ChessException("Invalid FEN: more than " + PieceRegistry.CAPACITY + " pieces '" + c
+							+ "' in piece placement");
+				}
+				ChessPiece piece = createPiece(type, color);
+				board.placePiece(piece, ChessBoard.square(row, column));
+				piecesOnTheBoard.add(piece);
+				column++;
+			}
+		}
+		if (row != 7 || column != 8) {
+			throw new ChessException("Invalid FEN: piece placement must have 8 ranks of 8 squares");
+		}
+		if (piecesOnTheBoard.count(Color.WHITE, ChessBoard.KING) != 1
+				|| piecesOnTheBoard.count(Color.BLACK, ChessBoard.KING) != 1) {
+			throw new ChessException("Invalid FEN: each side must have exactly one king");
+		}
+
+		if (fields[1].equals("w")) {
+			currentPlayer = Color.WHITE;
+		} else if (fields[1].equals("b")) {
+			currentPlayer = Color.BLACK;
+			stateKey ^= Zobrist.BLACK_TO_MOVE;
+		} else {
+			throw new ChessException("Invalid FEN: side to move must be w or b");
+		}
+
+		// castling rights follow from unmoved kings and rooks, so every other king and rook counts as moved
+		int rights = 0;
+		if (!fields[2].equals("-")) {
+			for (char c : fields[2].toCharArray()) {
+				int index = "KQkq".indexOf(c);
+				if (index < 0) {
+					throw new ChessException("Invalid FEN: unexpected '" + c + "' in castling rights");
+				}
+				rights |= 1 << index;
+			}
+		}
+		long occupied = board.occupied();
+		while (occupied != 0) {
+			int square = Long.numberOfTrailingZeros(occupied);
+			occupied &= occupied - 1;
+			ChessPiece piece = board.piece(square);
+			boolean white = piece.getColor() == Color.WHITE;
+			boolean unmoved;
+			switch (piece.getType()) {
+			case ChessBoard.PAWN:
+				unmoved = ChessBoard.row(square) == (white ? 6 : 1);
+				break;
+			case ChessBoard.KING:
+				unmoved = square == (white ? 60 : 4) && (rights & (white ? 3 : 12)) != 0;
+				break;
+			case ChessBoard.ROOK:
+				int kingside = white ? Zobrist.WHITE_KINGSIDE : Zobrist.BLACK_KINGSIDE;
+				int queenside = white ? Zobrist.WHITE_QUEENSIDE : Zobrist.BLACK_QUEENSIDE;
+				unmoved = (square == (white ? 63 : 7) && (rights & kingside) != 0)
+						|| (square == (white ? 56 : 0) && (rights & queenside) != 0);
+				break;
+			default:
+				unmoved = true;
+			}
+			piece.setMoveCount(unmoved ? 0 : 1);
+		}
+		updateCastlingRights();
+
+		if (!fields[3].equals("-")) {
+			if (fields[3].length() != 2 || fields[3].charAt(0) < 'a' || fields[3].charAt(0) > 'h'
+					|| fields[3].charAt(1) != (currentPlayer == Color.WHITE ? '6' : '3')) {
+				throw new ChessException("Invalid FEN: bad en passant square " + fields[3]);
+			}
+			int target = ChessPosition.of(fields[3].charAt(0), fields[3].charAt(1) - '0').square();
+			int pawnSquare = target + (currentPlayer == Color.WHITE ? 8 : -8);
+			if (board.pieceCode(pawnSquare) != ChessBoard.pieceCode(opponent(currentPlayer), ChessBoard.PAWN)) {
+				throw new ChessException("Invalid FEN: no pawn to capture en passant on " + fields[3]);
+			}
+			setEnPassantVulnerable(board.piece(pawnSquare));
+		}
+
+		try {
+			halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+			int fullmoveNumber = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+			if (halfmoveClock < 0 || fullmoveNumber < 1) {
+				throw new NumberFormatException();
+			}
+			turn = 2 * (fullmoveNumber - 1) + (currentPlayer == Color.WHITE ? 1 : 2);
+		} catch (NumberFormatException e) {
+			throw new ChessException("Invalid FEN: bad move counters");
+		}
+
+		if (testCheck(opponent(currentPlayer))) {
+			throw new ChessException("Invalid FEN: the side not to move is in check");
+		}
+		updateStatus();
+		publishSnapshot();
+	}
+
+	// the position in Forsyth-Edwards Notation
+	public String toFen() {
+		return createSnapshot().toFen();
+	}
+
+	/*
+	 * The position after the last played, taken back or replayed move. Safe
+	 * to call from any thread; moves made with makeMove(int) do not show.
+	 */
+	public MatchSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	private void publishSnapshot() {
+		snapshot = createSnapshot();
+	}
+
+	private MatchSnapshot createSnapshot() {
+		long[] bitboards = new long[12];
+		for (Color color : Color.values()) {
+			for (int type = ChessBoard.PAWN; type <= ChessBoard.KING; type++) {
+				bitboards[ChessBoard.pieceCode(color, type)] = board.pieces(color, type);
+			}
+		}
+		return new MatchSnapshot(bitboards, currentPlayer, turn, castlingRights, enPassantSquare(currentPlayer),
+				halfmoveClock, status, check, getZobristKey(), madeCount > 0 ? madeMoves[madeCount - 1] : Move.NONE);
+	}
+
+	/*
+	 * Independent copy of the current position, for work on another thread.
+	 * Moves made before the copy cannot be taken back on it.
+	 */
+	public ChessMatch copy() {
+		return new ChessMatch(this);
+	}
+
+	private ChessMatch(ChessMatch other) {
+		board = new ChessBoard();
+		turn = other.turn;
+		currentPlayer = other.currentPlayer;
+		check = other.check;
+		checkMate = other.checkMate;
+		status = other.status;
+		castlingRights = other.castlingRights;
+		enPassantFile = other.enPassantFile;
+		stateKey = other.stateKey;
+		halfmoveClock = other.halfmoveClock;
+
+		// the positions that can still repeat, so that a copy sees repetitions too
+		positionCount = other.repeatablePositions();
+		positionKeys = Arrays.copyOfRange(other.positionKeys, other.positionCount - positionCount,
+				other.positionCount - positionCount + Math.max(positionCount, 64));
+
+		long occupied = other.board.occupied();
+		while (occupied != 0) {
+			int square = Long.numberOfTrailingZeros(occupied);
+			ChessPiece piece = other.board.piece(square);
+			ChessPiece copy = createPiece(piece.getType(), piece.getColor());
+			copy.setMoveCount(piece.getMoveCount());
+			board.placePiece(copy, square);
+			piecesOnTheBoard.add(copy);
+			if (piece == other.enPassantVulnerable) {
+				enPassantVulnerable = copy;
+			}
+			if (piece == other.promoted) {
+				promoted = copy;
+			}
+			occupied &= occupied - 1;
+		}
+		publishSnapshot();
+	}
+
+	private ChessPiece createPiece(int type, Color color) {
+		switch (type) {
+		case ChessBoard.PAWN:
+			return new Pawn(board, color, this);
+		case ChessBoard.KING:
+			return new King(board, color, this);
+		default:
+			return newPiece(type, color);
+		}
 	}
 
 	public int getTurn() {
@@ -51,6 +300,24 @@ public class ChessMatch {
 		return checkMate;
 	}
 
+	// the player who gave checkmate, or null
+	public Color getWinner() {
+		return checkMate ? opponent(currentPlayer) : null;
+	}
+
+	public boolean getStalemate() {
+		return status == GameStatus.STALEMATE;
+	}
+
+	// status after the last played, taken back or replayed move, draws included; makeMove(int) does not update it
+	public GameStatus getStatus() {
+		return status;
+	}
+
+	public boolean isGameOver() {
+		return status.isGameOver();
+	}
+
 	public ChessPiece getEnPassantVulnerable() {
 		return enPassantVulnerable;
 	}
@@ -59,12 +326,30 @@ public class ChessMatch {
 		return promoted;
 	}
 
+	public PieceRegistry getPieceRegistry() {
+		return piecesOnTheBoard;
+	}
+
+	public long getZobristKey() {
+		return board.getKey() ^ stateKey;
+	}
+
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+
+	// plies since the last capture or pawn move
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+
 	public ChessPiece[][] getPieces() {
 		ChessPiece[][] mat = new ChessPiece[board.getRows()][board.getColumns()];
-		for (int i = 0; i < board.getRows(); i++) {
-			for (int j = 0; j < board.getColumns(); j++) {
-				mat[i][j] = (ChessPiece) board.piece(i, j);
-			}
+		long occupied = board.occupied();
+		while (occupied != 0) {
+			int square = Long.numberOfTrailingZeros(occupied);
+			mat[ChessBoard.row(square)][ChessBoard.column(square)] = board.piece(square);
+			occupied &= occupied - 1;
 		}
 		return mat;
 	}
@@ -78,41 +363,222 @@ public class ChessMatch {
 		Position target = targetPosition.toPosition();
 		validateSourcePosition(source);
 		validateTargetPosition(source, target);
-		Piece capturedPiece = makeMove(source, target);
+		int move = validateLegalMove(source, target);
+
+		// a new move ends the line that was taken back
+		takenBackCount = 0;
+		playMove(move);
+		return (ChessPiece) madeCaptures[madeCount - 1];
+	}
 
-		if (testCheck(currentPlayer)) {
-			undoMove(source, target, capturedPiece);
-			throw new ChessException("You can't put yourself in check!");
+	// makeMove(int) plus the state only played moves keep up to date; pawns promote to a queen
+	private void playMove(int move) {
+		makeMove(move);
+		promoted = Move.isPromotion(move) ? board.piece(Move.to(move)) : null;
+		updateStatus();
+		publishSnapshot();
+	}
+
+	/*
+	 * Status of the side to move. A game that is not over by checkmate or
+	 * stalemate is drawn after fifty moves by each side without a capture or
+	 * a pawn move, or when the position occurs for the third time.
+	 */
+	private void updateStatus() {
+		status = testGameStatus(currentPlayer);
+		if (!status.isGameOver()) {
+			if (halfmoveClock >= FIFTY_MOVE_PLIES) {
+				status = GameStatus.DRAW_BY_FIFTY_MOVES;
+			} else if (repetitions() >= 2) {
+				status = GameStatus.DRAW_BY_REPETITION;
+			}
 		}
+		check = testCheck(currentPlayer);
+		checkMate = status == GameStatus.CHECKMATE;
+	}
+
+	/*
+	 * How many times the current position occurred before, with the same
+	 * player to move, castling rights and en passant captures. Only positions
+	 * since the last capture or pawn move are compared, every second one.
+	 */
+	public int repetitions() {
+		return repetitions(Integer.MAX_VALUE);
+	}
 
-		ChessPiece movedPiece = (ChessPiece) board.piece(target);
+	// the current position occurred before, which search scores as a draw
+	public boolean isRepetition() {
+		return repetitions(1) > 0;
+	}
 
-		// special move promotion
-		promoted = null;
-		if (movedPiece instanceof Pawn) {
-			if ((movedPiece.getColor() == Color.WHITE && target.getRow() == 0)
-					|| (movedPiece.getColor() == Color.BLACK && target.getRow() == 7)) {
-				promoted = (ChessPiece) board.piece(target);
-				promoted = replacePromotedPiece("Q");
+	// earlier positions that can still repeat: older ones come before a capture or pawn move, or end in a draw
+	private int repeatablePositions() {
+		return Math.min(Math.min(halfmoveClock, FIFTY_MOVE_PLIES), positionCount);
+	}
+
+	private int repetitions(int enough) {
+		long key = getZobristKey();
+		int count = 0;
+		int limit = repeatablePositions();
+		for (int i = 2; i <= limit && count < enough; i += 2) {
+			if (positionKeys[positionCount - i] == key) {
+				count++;
 			}
 		}
+		return count;
+	}
+
+	/*
+	 * Takes back the last move, whether played with performChessMove or made
+	 * with makeMove(int), and returns it. The moves taken back can be played
+	 * again with replayMove() until another move is made. Both take constant
+	 * time however long the game is.
+	 */
+	public int takeBackMove() {
+		if (madeCount == 0) {
+			throw new IllegalStateException("There is no move to take back");
+		}
+		if (madeCount != takenBackFrom) {
+			takenBackCount = 0;
+		}
+		int move = madeMoves[madeCount - 1];
+		unmakeMove();
+		if (takenBackCount == takenBackMoves.length) {
+			takenBackMoves = Arrays.copyOf(takenBackMoves, takenBackCount * 2);
+		}
+		takenBackMoves[takenBackCount++] = move;
+		takenBackFrom = madeCount;
+		publishSnapshot();
+		return move;
+	}
 
-		check = (testCheck(opponent(currentPlayer))) ? true : false;
+	// plays again the last move taken back, and returns it
+	public int replayMove() {
+		if (!canReplayMove()) {
+			throw new IllegalStateException("There is no move to replay");
+		}
+		int move = takenBackMoves[--takenBackCount];
+		playMove(move);
+		takenBackFrom = madeCount;
+		return move;
+	}
 
-		if (testCheckMate(opponent(currentPlayer))) {
-			checkMate = true;
-		} else {
-			nextTurn();
+	public boolean canTakeBackMove() {
+		return madeCount > 0;
+	}
+
+	public boolean canReplayMove() {
+		return takenBackCount > 0 && madeCount == takenBackFrom;
+	}
+
+	// the moves made since the match started, oldest first
+	public int[] getMoveHistory() {
+		return Arrays.copyOf(madeMoves, madeCount);
+	}
+
+	// forgets the move history, so none of the moves made so far can be taken back
+	public void clearMoveHistory() {
+		Arrays.fill(madeCaptures, 0, madeCount, null);
+		Arrays.fill(madePromotedPawns, 0, madeCount, null);
+		Arrays.fill(madeEnPassantVulnerable, 0, madeCount, null);
+		Arrays.fill(madeStatuses, 0, madeCount, null);
+		Arrays.fill(madePromoted, 0, madeCount, null);
+		madeCount = 0;
+		takenBackCount = 0;
+		takenBackFrom = 0;
+
+		int keep = repeatablePositions();
+		System.arraycopy(positionKeys, positionCount - keep, positionKeys, 0, keep);
+		positionCount = keep;
+	}
+
+	/*
+	 * Plays a legal move produced by generateLegalMoves, including promotion,
+	 * en passant state and the change of turn, so it can be taken back with
+	 * unmakeMove(). Used by search and analysis code.
+	 */
+	public void makeMove(int move) {
+		if (madeCount == madeMoves.length) {
+			growMadeMoves();
+		}
+		madeMoves[madeCount] = move;
+		madeEnPassantVulnerable[madeCount] = enPassantVulnerable;
+		madeEnPassantFiles[madeCount] = enPassantFile;
+		madeChecks[madeCount] = check;
+		madeHalfmoveClocks[madeCount] = halfmoveClock;
+		madeStatuses[madeCount] = status;
+		madePromoted[madeCount] = promoted;
+		if (positionCount == positionKeys.length) {
+			positionKeys = Arrays.copyOf(positionKeys, positionCount * 2);
 		}
+		positionKeys[positionCount++] = getZobristKey();
+
+		Position source = Square.of(Move.from(move));
+		Position target = Square.of(Move.to(move));
+		madeCaptures[madeCount] = makeMove(source, target);
+		madePromotedPawns[madeCount] = null;
+		if (Move.isPromotion(move)) {
+			madePromotedPawns[madeCount] = replacePiece(target, newPiece(Move.promotion(move), currentPlayer));
+		}
+		madeCount++;
 
-		if (movedPiece instanceof Pawn
-				&& (target.getRow() == source.getRow() + 2 || target.getRow() == source.getRow() - 2)) {
-			enPassantVulnerable = movedPiece;
-		} else {
-			enPassantVulnerable = null;
+		setEnPassantVulnerable((Move.flags(move) & Move.DOUBLE_PAWN_PUSH) != 0 ? board.piece(Move.to(move)) : null);
+		nextTurn();
+		check = testCheck(currentPlayer);
+	}
+
+	public void unmakeMove() {
+		if (madeCount == 0) {
+			throw new IllegalStateException("There is no move to take back");
+		}
+		madeCount--;
+		positionCount--;
+		int move = madeMoves[madeCount];
+		Position source = Square.of(Move.from(move));
+		Position target = Square.of(Move.to(move));
+
+		previousTurn();
+		if (madePromotedPawns[madeCount] != null) {
+			replacePiece(target, madePromotedPawns[madeCount]);
 		}
+		restoreEnPassant(madeEnPassantVulnerable[madeCount], madeEnPassantFiles[madeCount]);
+		check = madeChecks[madeCount];
+		halfmoveClock = madeHalfmoveClocks[madeCount];
+		status = madeStatuses[madeCount];
+		checkMate = status == GameStatus.CHECKMATE;
+		promoted = madePromoted[madeCount];
+		undoMove(source, target, madeCaptures[madeCount]);
+
+		madeCaptures[madeCount] = null;
+		madePromotedPawns[madeCount] = null;
+		madeEnPassantVulnerable[madeCount] = null;
+		madeStatuses[madeCount] = null;
+		madePromoted[madeCount] = null;
+	}
+
+	private void growMadeMoves() {
+		int capacity = madeMoves.length * 2;
+		madeMoves = Arrays.copyOf(madeMoves, capacity);
+		madeCaptures = Arrays.copyOf(madeCaptures, capacity);
+		madePromotedPawns = Arrays.copyOf(madePromotedPawns, capacity);
+		madeEnPassantVulnerable = Arrays.copyOf(madeEnPassantVulnerable, capacity);
+		madeEnPassantFiles = Arrays.copyOf(madeEnPassantFiles, capacity);
+		madeChecks = Arrays.copyOf(madeChecks, capacity);
+		madeHalfmoveClocks = Arrays.copyOf(madeHalfmoveClocks, capacity);
+		madeStatuses = Arrays.copyOf(madeStatuses, capacity);
+		madePromoted = Arrays.copyOf(madePromoted, capacity);
+	}
 
-		return (ChessPiece) capturedPiece;
+	public long getBitboard(Color color, int type) {
+		return board.pieces(color, type);
+	}
+
+	public long getOccupied() {
+		return board.occupied();
+	}
+
+	public int getPieceCode(int square) {
+		return board.pieceCode(square);
 	}
 
 	public ChessPiece replacePromotedPiece(String type) {
@@ -125,16 +591,31 @@ public class ChessMatch {
 
 		Position pos = promoted.getChessPiece().toPosition();
 		Piece p = board.removePiece(pos);
-		piecesOnTheBoard.remove(p);
+		piecesOnTheBoard.remove((ChessPiece) p);
 		
 		ChessPiece newPiece = newPiece(type, promoted.getColor());
 		board.placePiece(newPiece, pos);
 		piecesOnTheBoard.add(newPiece);
-		
+
+		// the history keeps the piece chosen, so the move is replayed with it
+		int move = madeCount > 0 ? madeMoves[madeCount - 1] : Move.NONE;
+		if (Move.isPromotion(move) && Move.to(move) == newPiece.square()) {
+			madeMoves[madeCount - 1] = Move.encode(Move.from(move), Move.to(move), Move.flags(move),
+					newPiece.getType());
+		}
+		takenBackCount = 0;
+		promoted = newPiece;
+		updateStatus();
+		publishSnapshot();
+
 		return newPiece;
 	}
 
-	private ChessPiece newPiece(String type, Color color) {
+	ChessPiece newPiece(int type, Color color) {
+		return newPiece(String.valueOf("PNBRQK".charAt(type)), color);
+	}
+
+	ChessPiece newPiece(String type, Color color) {
 		if (type.equals("B")) {
 			return new Bishop(board, color);
 		}
@@ -147,21 +628,21 @@ public class ChessMatch {
 		return new Queen(board, color);
 	}
 
-	private Piece makeMove(Position source, Position target) {
+	Piece makeMove(Position source, Position target) {
 		ChessPiece p = (ChessPiece) board.removePiece(source);
 		p.increaseMoveCount();
 		Piece capturedPiece = board.removePiece(target);
 		board.placePiece(p, target);
 
 		if (capturedPiece != null) {
-			piecesOnTheBoard.remove(capturedPiece);
+			piecesOnTheBoard.remove((ChessPiece) capturedPiece);
 			capturedPieces.add(capturedPiece);
 		}
 
 		// special move castiling kingside rook
 		if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-			Position sourceRook = new Position(source.getRow(), source.getColumn() + 3);
-			Position targetRook = new Position(source.getRow(), source.getColumn() + 1);
+			Position sourceRook = Square.of(source.getRow(), source.getColumn() + 3);
+			Position targetRook = Square.of(source.getRow(), source.getColumn() + 1);
 			ChessPiece rook = (ChessPiece) board.removePiece(sourceRook);
 			board.placePiece(rook, targetRook);
 			rook.increaseMoveCount();
@@ -169,8 +650,8 @@ public class ChessMatch {
 
 		// special move castling queenside rook
 		if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-			Position sourceRook = new Position(source.getRow(), source.getColumn() - 4);
-			Position targetRook = new Position(source.getRow(), source.getColumn() - 1);
+			Position sourceRook = Square.of(source.getRow(), source.getColumn() - 4);
+			Position targetRook = Square.of(source.getRow(), source.getColumn() - 1);
 			ChessPiece rook = (ChessPiece) board.removePiece(sourceRook);
 			board.placePiece(rook, targetRook);
 			rook.increaseMoveCount();
@@ -181,43 +662,45 @@ public class ChessMatch {
 			if (target.getColumn() != source.getColumn() && capturedPiece == null) {
 				Position pawnPosition;
 				if (p.getColor() == Color.WHITE) {
-					pawnPosition = new Position(target.getRow() + 1, target.getColumn());
+					pawnPosition = Square.of(target.getRow() + 1, target.getColumn());
 				} else {
-					pawnPosition = new Position(target.getRow() - 1, target.getColumn());
+					pawnPosition = Square.of(target.getRow() - 1, target.getColumn());
 				}
 				capturedPiece = board.removePiece(pawnPosition);
-				piecesOnTheBoard.remove(capturedPiece);
+				piecesOnTheBoard.remove((ChessPiece) capturedPiece);
 				capturedPieces.add(capturedPiece);
 			}
 		}
 
+		halfmoveClock = (p instanceof Pawn || capturedPiece != null) ? 0 : halfmoveClock + 1;
+		updateCastlingRights();
 		return capturedPiece;
 	}
 
-	private void undoMove(Position source, Position target, Piece capturedPiece) {
+	void undoMove(Position source, Position target, Piece capturedPiece) {
 		ChessPiece p = (ChessPiece) board.removePiece(target);
 		p.decreaseMoveCount();
 		board.placePiece(p, source);
 
 		if (capturedPiece != null) {
 			board.placePiece(capturedPiece, target);
-			piecesOnTheBoard.add(capturedPiece);
-			capturedPieces.remove(capturedPiece);
+			piecesOnTheBoard.add((ChessPiece) capturedPiece);
+			capturedPieces.remove(capturedPieces.lastIndexOf(capturedPiece));
 		}
 
 		// undo specialmove castiling kingside rook
 		if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-			Position sourceRook = new Position(source.getRow(), source.getColumn() + 3);
-			Position targetRook = new Position(source.getRow(), source.getColumn() + 1);
+			Position sourceRook = Square.of(source.getRow(), source.getColumn() + 3);
+			Position targetRook = Square.of(source.getRow(), source.getColumn() + 1);
 			ChessPiece rook = (ChessPiece) board.removePiece(targetRook);
 			board.placePiece(rook, sourceRook);
 			rook.decreaseMoveCount();
 		}
 
 		// undo specialmove castiling queenside rook
-		if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-			Position sourceRook = new Position(source.getRow(), source.getColumn() - 4);
-			Position targetRook = new Position(source.getRow(), source.getColumn() - 1);
+		if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
+			Position sourceRook = Square.of(source.getRow(), source.getColumn() - 4);
+			Position targetRook = Square.of(source.getRow(), source.getColumn() - 1);
 			ChessPiece rook = (ChessPiece) board.removePiece(targetRook);
 			board.placePiece(rook, sourceRook);
 			rook.decreaseMoveCount();
@@ -229,24 +712,22 @@ public class ChessMatch {
 				ChessPiece pawn = (ChessPiece) board.removePiece(target);
 				Position pawnPosition;
 				if (p.getColor() == Color.WHITE) {
-					pawnPosition = new Position(3, target.getColumn());
+					pawnPosition = Square.of(3, target.getColumn());
 				} else {
-					pawnPosition = new Position(4, target.getColumn());
+					pawnPosition = Square.of(4, target.getColumn());
 				}
 				board.placePiece(pawn, pawnPosition);
 			}
 		}
+
+		updateCastlingRights();
 	}
 
 	private boolean hasEnemyPiece(Position p) {
-		if (board.piece(p) == null) {
+		if (!board.thereIsAPiece(p)) {
 			throw new ChessException("Error reading chess position. Valid values are frfom a1 to h8.");
 		}
-		if (currentPlayer != (((ChessPiece) board.piece(p)).getColor())) {
-			return true;
-		} else {
-			return false;
-		}
+		return board.isOccupied(ChessBoard.square(p), opponent(currentPlayer));
 	}
 
 	public void verifyHasEnemyPiece(ChessPosition source) {
@@ -260,114 +741,199 @@ public class ChessMatch {
 			throw new ChessException("There is no piece on source position.");
 		} else if (hasEnemyPiece(source)) {
 			throw new ChessException("The chosen piece is not yours");
-		} else if (!board.piece(source).isThereAnyPossibleMove()) {
+		}
+		if (!board.piece(source).isThereAnyPossibleMove()) {
 			throw new ChessException("There is no possible moves for the chosen piece!");
 		}
 	}
 
 	private void validateTargetPosition(Position source, Position target) {
-		if (!board.piece(source).possibleMove(target)) {
+		moveBuffer.clear();
+		((ChessPiece) board.piece(source)).generateMoves(moveBuffer);
+		if (!moveBuffer.containsTarget(ChessBoard.square(source), ChessBoard.square(target))) {
 			throw new ChessException("The chosen piece can't move to target position.");
 		}
 	}
 
+	// the legal move from source to target, promoting to a queen
+	private int validateLegalMove(Position source, Position target) {
+		moveBuffer.clear();
+		generateLegalMoves(currentPlayer, moveBuffer);
+		int from = ChessBoard.square(source);
+		int to = ChessBoard.square(target);
+		for (int i = 0; i < moveBuffer.size(); i++) {
+			int move = moveBuffer.get(i);
+			if (Move.from(move) == from && Move.to(move) == to
+					&& (!Move.isPromotion(move) || Move.promotion(move) == ChessBoard.QUEEN)) {
+				return move;
+			}
+		}
+		throw new ChessException("You can't put yourself in check!");
+	}
+
 	private void placeNewPiece(ChessPosition chessPosition, ChessPiece piece) {
 		board.placePiece(piece, chessPosition.toPosition());
 		piecesOnTheBoard.add(piece);
 	}
 
-	private void nextTurn() {
+	void nextTurn() {
 		turn++;
 		currentPlayer = (currentPlayer == Color.WHITE) ? Color.BLACK : Color.WHITE;
+		stateKey ^= Zobrist.BLACK_TO_MOVE;
 	}
 
-	private Color opponent(Color color) {
-		return (color == Color.WHITE) ? Color.BLACK : Color.WHITE;
+	void previousTurn() {
+		turn--;
+		currentPlayer = (currentPlayer == Color.WHITE) ? Color.BLACK : Color.WHITE;
+		stateKey ^= Zobrist.BLACK_TO_MOVE;
 	}
 
-	private ChessPiece king(Color color) {
-		List<Piece> pieces = piecesOnTheBoard.stream().filter(p -> ((ChessPiece) p).getColor() == color)
-				.collect(Collectors.toList());
-
-		for (Piece p : pieces) {
-			if (p instanceof King) {
-				return (ChessPiece) p;
+	void setEnPassantVulnerable(ChessPiece enPassantVulnerable) {
+		this.enPassantVulnerable = enPassantVulnerable;
+		if (enPassantFile >= 0) {
+			stateKey ^= Zobrist.EN_PASSANT_FILE[enPassantFile];
+		}
+		enPassantFile = -1;
+
+		// the file only counts for the key when an opponent pawn can take en passant
+		if (enPassantVulnerable != null) {
+			int square = enPassantVulnerable.square();
+			int column = ChessBoard.column(square);
+			int opponentPawn = ChessBoard.pieceCode(opponent(enPassantVulnerable.getColor()), ChessBoard.PAWN);
+			if ((column > 0 && board.pieceCode(square - 1) == opponentPawn)
+					|| (column < 7 && board.pieceCode(square + 1) == opponentPawn)) {
+				enPassantFile = column;
+				stateKey ^= Zobrist.EN_PASSANT_FILE[enPassantFile];
 			}
 		}
-		throw new IllegalStateException("There is no " + color + " king on the board");
 	}
 
-	public boolean testCheck(Color color) {
-		Position kingPosition = king(color).getChessPiece().toPosition();
-		List<Piece> opponentPieces = piecesOnTheBoard.stream()
-				.filter(p -> ((ChessPiece) p).getColor() == opponent(color)).collect(Collectors.toList());
+	void restoreEnPassant(ChessPiece enPassantVulnerable, int enPassantFile) {
+		if (this.enPassantFile >= 0) {
+			stateKey ^= Zobrist.EN_PASSANT_FILE[this.enPassantFile];
+		}
+		if (enPassantFile >= 0) {
+			stateKey ^= Zobrist.EN_PASSANT_FILE[enPassantFile];
+		}
+		this.enPassantVulnerable = enPassantVulnerable;
+		this.enPassantFile = enPassantFile;
+	}
 
-		for (Piece p : opponentPieces) {
-			if (p.possibleMove(kingPosition)) {
-				return true;
+	private void updateCastlingRights() {
+		int rights = 0;
+		if (isUnmoved(60, ChessBoard.pieceCode(Color.WHITE, ChessBoard.KING))) {
+			if (isUnmoved(63, ChessBoard.pieceCode(Color.WHITE, ChessBoard.ROOK))) {
+				rights |= Zobrist.WHITE_KINGSIDE;
+			}
+			if (isUnmoved(56, ChessBoard.pieceCode(Color.WHITE, ChessBoard.ROOK))) {
+				rights |= Zobrist.WHITE_QUEENSIDE;
 			}
 		}
-		return false;
+		if (isUnmoved(4, ChessBoard.pieceCode(Color.BLACK, ChessBoard.KING))) {
+			if (isUnmoved(7, ChessBoard.pieceCode(Color.BLACK, ChessBoard.ROOK))) {
+				rights |= Zobrist.BLACK_KINGSIDE;
+			}
+			if (isUnmoved(0, ChessBoard.pieceCode(Color.BLACK, ChessBoard.ROOK))) {
+				rights |= Zobrist.BLACK_QUEENSIDE;
+			}
+		}
+		if (rights != castlingRights) {
+			stateKey ^= Zobrist.CASTLING[castlingRights] ^ Zobrist.CASTLING[rights];
+			castlingRights = rights;
+		}
+	}
+
+	private boolean isUnmoved(int square, int pieceCode) {
+		return board.pieceCode(square) == pieceCode && board.piece(square).getMoveCount() == 0;
+	}
+
+	ChessPiece replacePiece(Position position, ChessPiece piece) {
+		ChessPiece oldPiece = (ChessPiece) board.removePiece(position);
+		piecesOnTheBoard.remove(oldPiece);
+		board.placePiece(piece, position);
+		piecesOnTheBoard.add(piece);
+		return oldPiece;
+	}
+
+	public void generateLegalMoves(MoveList moves) {
+		generateLegalMoves(currentPlayer, moves);
+	}
+
+	void generateLegalMoves(Color color, MoveList moves) {
+		MoveGenerator.generate(board, color, castlingRights, enPassantSquare(color), moves);
+	}
+
+	// square a pawn of the given color moves to when capturing en passant, -1 if there is none
+	private int enPassantSquare(Color color) {
+		if (enPassantVulnerable == null || enPassantVulnerable.getColor() == color
+				|| !enPassantVulnerable.isOnBoard()) {
+			return -1;
+		}
+		return enPassantVulnerable.square() + (enPassantVulnerable.getColor() == Color.WHITE ? 8 : -8);
+	}
+
+	Color opponent(Color color) {
+		return (color == Color.WHITE) ? Color.BLACK : Color.WHITE;
+	}
+
+	public boolean testCheck(Color color) {
+		return board.isAttacked(piecesOnTheBoard.kingSquare(color), opponent(color));
+	}
+
+	public boolean isAttacked(ChessPosition position, Color color) {
+		return board.isAttacked(position.square(), color);
 	}
 
 	public boolean testCheckMate(Color color) {
-		if (!testCheck(color)) {
-			return false;
-		}
-
-		return piecesOnTheBoard.stream().filter(p -> ((ChessPiece) p).getColor() == color).map(p -> {
-			boolean[][] mat = p.possibleMoves();
-			for (int i = 0; i < board.getRows(); i++) {
-				for (int j = 0; j < board.getColumns(); j++) {
-					if (mat[i][j]) {
-						Position source = ((ChessPiece) p).getChessPiece().toPosition();
-						Position target = new Position(i, j);
-						Piece capturedPiece = makeMove(source, target);
-						boolean testCheck = testCheck(color);
-						undoMove(source, target, capturedPiece);
-						if (!testCheck) {
-							return false;
-						}
-					}
-				}
-			}
-			return true;
-		}).findFirst().get();
+		return testGameStatus(color) == GameStatus.CHECKMATE;
+	}
+
+	public boolean testStalemate(Color color) {
+		return testGameStatus(color) == GameStatus.STALEMATE;
+	}
+
+	// stops at the first legal move found, so it costs at most one pass over the pieces of the color
+	public GameStatus testGameStatus(Color color) {
+		boolean inCheck = testCheck(color);
+		if (MoveGenerator.hasLegalMove(board, color, enPassantSquare(color))) {
+			return inCheck ? GameStatus.CHECK : GameStatus.IN_PROGRESS;
+		}
+		return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
 	}
 
 	public void initialSetup() {
-		placeNewPiece(new ChessPosition('a', 2), new Pawn(board, Color.WHITE, this));
-		placeNewPiece(new ChessPosition('b', 2), new Pawn(board, Color.WHITE, this));
-		placeNewPiece(new ChessPosition('c', 2), new Pawn(board, Color.WHITE, this));
-		placeNewPiece(new ChessPosition('d', 2), new Pawn(board, Color.WHITE, this));
-		placeNewPiece(new ChessPosition('e', 2), new Pawn(board, Color.WHITE, this));
-		placeNewPiece(new ChessPosition('f', 2), new Pawn(board, Color.WHITE, this));
-		placeNewPiece(new ChessPosition('g', 2), new Pawn(board, Color.WHITE, this));
-		placeNewPiece(new ChessPosition('h', 2), new Pawn(board, Color.WHITE, this));
-		placeNewPiece(new ChessPosition('h', 1), new Rook(board, Color.WHITE));
-		placeNewPiece(new ChessPosition('a', 1), new Rook(board, Color.WHITE));
-		placeNewPiece(new ChessPosition('d', 1), new Queen(board, Color.WHITE));
-		placeNewPiece(new ChessPosition('e', 1), new King(board, Color.WHITE, this));
-		placeNewPiece(new ChessPosition('c', 1), new Bishop(board, Color.WHITE));
-		placeNewPiece(new ChessPosition('f', 1), new Bishop(board, Color.WHITE));
-		placeNewPiece(new ChessPosition('b', 1), new Knight(board, Color.WHITE));
-		placeNewPiece(new ChessPosition('g', 1), new Knight(board, Color.WHITE));
-
-		placeNewPiece(new ChessPosition('a', 7), new Pawn(board, Color.BLACK, this));
-		placeNewPiece(new ChessPosition('b', 7), new Pawn(board, Color.BLACK, this));
-		placeNewPiece(new ChessPosition('c', 7), new Pawn(board, Color.BLACK, this));
-		placeNewPiece(new ChessPosition('d', 7), new Pawn(board, Color.BLACK, this));
-		placeNewPiece(new ChessPosition('e', 7), new Pawn(board, Color.BLACK, this));
-		placeNewPiece(new ChessPosition('f', 7), new Pawn(board, Color.BLACK, this));
-		placeNewPiece(new ChessPosition('g', 7), new Pawn(board, Color.BLACK, this));
-		placeNewPiece(new ChessPosition('h', 7), new Pawn(board, Color.BLACK, this));
-		placeNewPiece(new ChessPosition('h', 8), new Rook(board, Color.BLACK));
-		placeNewPiece(new ChessPosition('a', 8), new Rook(board, Color.BLACK));
-		placeNewPiece(new ChessPosition('e', 8), new King(board, Color.BLACK, this));
-		placeNewPiece(new ChessPosition('d', 8), new Queen(board, Color.BLACK));
-		placeNewPiece(new ChessPosition('c', 8), new Bishop(board, Color.BLACK));
-		placeNewPiece(new ChessPosition('f', 8), new Bishop(board, Color.BLACK));
-		placeNewPiece(new ChessPosition('b', 8), new Knight(board, Color.BLACK));
-		placeNewPiece(new ChessPosition('g', 8), new Knight(board, Color.BLACK));
+		placeNewPiece(ChessPosition.of('a', 2), new Pawn(board, Color.WHITE, this));
+		placeNewPiece(ChessPosition.of('b', 2), new Pawn(board, Color.WHITE, this));
+		placeNewPiece(ChessPosition.of('c', 2), new Pawn(board, Color.WHITE, this));
+		placeNewPiece(ChessPosition.of('d', 2), new Pawn(board, Color.WHITE, this));
+		placeNewPiece(ChessPosition.of('e', 2), new Pawn(board, Color.WHITE, this));
+		placeNewPiece(ChessPosition.of('f', 2), new Pawn(board, Color.WHITE, this));
+		placeNewPiece(ChessPosition.of('g', 2), new Pawn(board, Color.WHITE, this));
+		placeNewPiece(ChessPosition.of('h', 2), new Pawn(board, Color.WHITE, this));
+		placeNewPiece(ChessPosition.of('h', 1), new Rook(board, Color.WHITE));
+		placeNewPiece(ChessPosition.of('a', 1), new Rook(board, Color.WHITE));
+		placeNewPiece(ChessPosition.of('d', 1), new Queen(board, Color.WHITE));
+		placeNewPiece(ChessPosition.of('e', 1), new King(board, Color.WHITE, this));
+		placeNewPiece(ChessPosition.of('c', 1), new Bishop(board, Color.WHITE));
+		placeNewPiece(ChessPosition.of('f', 1), new Bishop(board, Color.WHITE));
+		placeNewPiece(ChessPosition.of('b', 1), new Knight(board, Color.WHITE));
+		placeNewPiece(ChessPosition.of('g', 1), new Knight(board, Color.WHITE));
+
+		placeNewPiece(ChessPosition.of('a', 7), new Pawn(board, Color.BLACK, this));
+		placeNewPiece(ChessPosition.of('b', 7), new Pawn(board, Color.BLACK, this));
+		placeNewPiece(ChessPosition.of('c', 7), new Pawn(board, Color.BLACK, this));
+		placeNewPiece(ChessPosition.of('d', 7), new Pawn(board, Color.BLACK, this));
+		placeNewPiece(ChessPosition.of('e', 7), new Pawn(board, Color.BLACK, this));
+		placeNewPiece(ChessPosition.of('f', 7), new Pawn(board, Color.BLACK, this));
+		placeNewPiece(ChessPosition.of('g', 7), new Pawn(board, Color.BLACK, this));
+		placeNewPiece(ChessPosition.of('h', 7), new Pawn(board, Color.BLACK, this));
+		placeNewPiece(ChessPosition.of('h', 8), new Rook(board, Color.BLACK));
+		placeNewPiece(ChessPosition.of('a', 8), new Rook(board, Color.BLACK));
+		placeNewPiece(ChessPosition.of('e', 8), new King(board, Color.BLACK, this));
+		placeNewPiece(ChessPosition.of('d', 8), new Queen(board, Color.BLACK));
+		placeNewPiece(ChessPosition.of('c', 8), new Bishop(board, Color.BLACK));
+		placeNewPiece(ChessPosition.of('f', 8), new Bishop(board, Color.BLACK));
+		placeNewPiece(ChessPosition.of('b', 8), new Knight(board, Color.BLACK));
+		placeNewPiece(ChessPosition.of('g', 8), new Knight(board, Color.BLACK));
 	}
 }
@@ -9,6 +9,7 @@ public abstract class ChessPiece extends Piece {
 
 	private Color color;
 	private int moveCount;
+	int registryIndex = -1;
 	
 	public ChessPiece(Board board, Color color) {
 		super(board);
@@ -23,13 +24,72 @@ public abstract class ChessPiece extends Piece {
 		return moveCount;
 	}
 	
+	public abstract int getType();
+	
+	/*
+	 * Appends the pseudo-legal moves of this piece to the given buffer.
+	 */
+	public abstract void generateMoves(MoveList moves);
+	
+	@Override
+	public boolean[][] possibleMoves() {
+		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
+		MoveList moves = new MoveList(32);
+		generateMoves(moves);
+		for (int i = 0; i < moves.size(); i++) {
+			int to = Move.to(moves.get(i));
+			mat[ChessBoard.row(to)][ChessBoard.column(to)] = true;
+		}
+		return mat;
+	}
+	
+	@Override
+	public boolean isThereAnyPossibleMove() {
+		MoveList moves = new MoveList(32);
+		generateMoves(moves);
+		return !moves.isEmpty();
+	}
+	
 	public ChessPosition getChessPiece() {
 		return ChessPosition.fromPosition(position);
 	}
 	
+	protected ChessBoard getChessBoard() {
+		return (ChessBoard) getBoard();
+	}
+	
 	protected boolean isThereOpponentPiece(Position position) {
-		ChessPiece auxPiece = (ChessPiece) getBoard().piece(position);	
-		return auxPiece != null && auxPiece.getColor() != color;
+		return getChessBoard().isOccupied(ChessBoard.square(position), opponentColor());
+	}
+	
+	protected boolean isOnBoard() {
+		return position != null;
+	}
+	
+	protected int square() {
+		return ChessBoard.square(position);
+	}
+	
+	// whether any of the target squares is not taken by a piece of the same color
+	protected boolean hasMoves(long targets) {
+		return (targets & ~getChessBoard().pieces(color)) != 0;
+	}
+	
+	// appends a move to every target square not taken by a piece of the same color
+	protected void addMoves(MoveList moves, long targets) {
+		ChessBoard board = getChessBoard();
+		int from = square();
+		targets &= ~board.pieces(color);
+		long captures = targets & board.pieces(opponentColor());
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			moves.add(Move.encode(from, to, (captures & (1L << to)) != 0 ? Move.CAPTURE : 0, 0));
+			targets &= targets - 1;
+		}
+	}
+	
+	protected Color opponentColor() {
+		return (color == Color.WHITE) ? Color.BLACK : Color.WHITE;
 	}
 	
 	protected void increaseMoveCount() {
@@ -39,4 +99,8 @@ public abstract class ChessPiece extends Piece {
 	protected void decreaseMoveCount() {
 		moveCount--;
 	}
+	
+	void setMoveCount(int moveCount) {
+		this.moveCount = moveCount;
+	}
 }
@@ -1,11 +1,21 @@
 package chess;
 
 import boardgame.Position;
+import boardgame.Square;
 
 public class ChessPosition {
 	
-	private char column;
-	private int row;
+	// every square of the board, indexed like ChessBoard (a8 = 0, h1 = 63)
+	private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+	
+	static {
+		for (int i = 0; i < POSITIONS.length; i++) {
+			POSITIONS[i] = new ChessPosition((char) ('a' + i % 8), 8 - i / 8);
+		}
+	}
+	
+	private final char column;
+	private final int row;
 	
 	public ChessPosition(char column, int row) {
 		if (column < 'a' || column > 'h' || row < 1 || row > 8) {
@@ -15,12 +25,35 @@ public class ChessPosition {
 		this.row = row;
 	}
 	
+	public static ChessPosition of(char column, int row) {
+		if (column < 'a' || column > 'h' || row < 1 || row > 8) {
+			throw new ChessException("Error instantiating ChessPosition. Valid values are from a1 to h8.");
+		}
+		return POSITIONS[(8 - row) * 8 + column - 'a'];
+	}
+	
+	public static ChessPosition of(int square) {
+		return POSITIONS[square];
+	}
+	
+	public char getColumn() {
+		return column;
+	}
+	
+	public int getRow() {
+		return row;
+	}
+	
+	public int square() {
+		return (8 - row) * 8 + column - 'a';
+	}
+	
 	protected Position toPosition() {
-		return new Position(8 - row, column - 'a');
+		return Square.of(square());
 	}
 	
 	protected static ChessPosition fromPosition(Position position) {
-		return new ChessPosition((char) ('a' + position.getColumn()), 8 - position.getRow());
+		return POSITIONS[position.getRow() * 8 + position.getColumn()];
 	}
 	
 	@Override
@@ -0,0 +1,157 @@
+package chess;
+
+import chess.color.Color;
+import chess.status.GameStatus;
+
+/*
+ * Immutable view of a match position: one bitboard per piece code plus the
+ * state needed to render, analyse or restart from it. ChessMatch publishes a
+ * new snapshot after every played, taken back or replayed move, so any number
+ * of threads can read the live game without locking it or copying the board.
+ */
+public final class MatchSnapshot {
+
+	private final long[] bitboards;
+	private final long occupied;
+	private final Color currentPlayer;
+	private final int turn;
+	private final int castlingRights;
+	private final int enPassantSquare;
+	private final int halfmoveClock;
+	private final GameStatus status;
+	private final boolean check;
+	private final long key;
+	private final int lastMove;
+
+	MatchSnapshot(long[] bitboards, Color currentPlayer, int turn, int castlingRights, int enPassantSquare,
+			int halfmoveClock, GameStatus status, boolean check, long key, int lastMove) {
+		this.bitboards = bitboards;
+		long all = 0;
+		for (long pieces : bitboards) {
+			all |= pieces;
+		}
+		occupied = all;
+		this.currentPlayer = currentPlayer;
+		this.turn = turn;
+		this.castlingRights = castlingRights;
+		this.enPassantSquare = enPassantSquare;
+		this.halfmoveClock = halfmoveClock;
+		this.status = status;
+		this.check = check;
+		this.key = key;
+		this.lastMove = lastMove;
+	}
+
+	public long getBitboard(Color color, int type) {
+		return bitboards[ChessBoard.pieceCode(color, type)];
+	}
+
+	public long getOccupied() {
+		return occupied;
+	}
+
+	// piece code on the square, or ChessBoard.NO_PIECE
+	public int getPieceCode(int square) {
+		if ((occupied & (1L << square)) == 0) {
+			return ChessBoard.NO_PIECE;
+		}
+		int code = 0;
+		while ((bitboards[code] & (1L << square)) == 0) {
+			code++;
+		}
+		return code;
+	}
+
+	public Color getCurrentPlayer() {
+		return currentPlayer;
+	}
+
+	public int getTurn() {
+		return turn;
+	}
+
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+
+	// square a pawn of the current player moves to when capturing en passant, -1 if there is none
+	public int getEnPassantSquare() {
+		return enPassantSquare;
+	}
+
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+
+	public GameStatus getStatus() {
+		return status;
+	}
+
+	public boolean isGameOver() {
+		return status.isGameOver();
+	}
+
+	public boolean getCheck() {
+		return check;
+	}
+
+	public long getZobristKey() {
+		return key;
+	}
+
+	// the move that led to the position, or Move.NONE
+	public int getLastMove() {
+		return lastMove;
+	}
+
+	// the position in Forsyth-Edwards Notation
+	public String toFen() {
+		StringBuilder sb = new StringBuilder();
+		for (int row = 0; row < 8; row++) {
+			int empty = 0;
+			for (int column = 0; column < 8; column++) {
+				int code = getPieceCode(ChessBoard.square(row, column));
+				if (code == ChessBoard.NO_PIECE) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					sb.append(empty);
+					empty = 0;
+				}
+				char c = "pnbrqk".charAt(ChessBoard.typeOf(code));
+				sb.append(ChessBoard.colorOf(code) == Color.WHITE ? Character.toUpperCase(c) : c);
+			}
+			if (empty > 0) {
+				sb.append(empty);
+			}
+			if (row < 7) {
+				sb.append('/');
+			}
+		}
+
+		sb.append(currentPlayer == Color.WHITE ? " w " : " b ");
+		if (castlingRights == 0) {
+			sb.append('-');
+		}
+		for (int i = 0; i < 4; i++) {
+			if ((castlingRights & (1 << i)) != 0) {
+				sb.append("KQkq".charAt(i));
+			}
+		}
+
+		sb.append(' ').append(enPassantSquare < 0 ? "-" : ChessPosition.of(enPassantSquare).toString());
+		sb.append(' ').append(halfmoveClock).append(' ').append((turn - 1) / 2 + 1);
+		return sb.toString();
+	}
+
+	// a new match from this position, e.g. for analysis on the reading thread
+	public ChessMatch toChessMatch() {
+		return new ChessMatch(toFen());
+	}
+
+	@Override
+	public String toString() {
+		return toFen();
+	}
+}
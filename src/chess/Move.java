@@ -0,0 +1,67 @@
+package chess;
+
+/*
+ * Moves packed into an int: bits 0-5 source square, bits 6-11 target square,
+ * bits 12-15 flags and bits 16-18 the promotion piece type (0 when there is
+ * no promotion, as a pawn is never a promotion type).
+ */
+public final class Move {
+
+	public static final int NONE = 0;
+
+	public static final int CAPTURE = 1;
+	public static final int DOUBLE_PAWN_PUSH = 2;
+	public static final int EN_PASSANT = 4;
+	public static final int CASTLING = 8;
+
+	private Move() {
+	}
+
+	public static int encode(int from, int to, int flags, int promotion) {
+		return from | (to << 6) | (flags << 12) | (promotion << 16);
+	}
+
+	public static int from(int move) {
+		return move & 0x3F;
+	}
+
+	public static int to(int move) {
+		return (move >>> 6) & 0x3F;
+	}
+
+	public static int flags(int move) {
+		return (move >>> 12) & 0xF;
+	}
+
+	public static int promotion(int move) {
+		return (move >>> 16) & 0x7;
+	}
+
+	public static boolean isCapture(int move) {
+		return (move & (CAPTURE << 12)) != 0;
+	}
+
+	public static boolean isEnPassant(int move) {
+		return (move & (EN_PASSANT << 12)) != 0;
+	}
+
+	public static boolean isCastling(int move) {
+		return (move & (CASTLING << 12)) != 0;
+	}
+
+	public static boolean isPromotion(int move) {
+		return promotion(move) != 0;
+	}
+
+	public static String toString(int move) {
+		String text = squareName(from(move)) + squareName(to(move));
+		if (isPromotion(move)) {
+			text += "pnbrqk".charAt(promotion(move));
+		}
+		return text;
+	}
+
+	private static String squareName(int square) {
+		return "" + (char) ('a' + ChessBoard.column(square)) + (8 - ChessBoard.row(square));
+	}
+}
@@ -0,0 +1,305 @@
+package chess;
+
+import chess.color.Color;
+
+/*
+ * Legal move generator. Checkers, pinned pieces and the squares that resolve
+ * a check are computed once up front, so every move it produces is legal and
+ * no move has to be made and taken back to find out.
+ */
+public final class MoveGenerator {
+
+	private MoveGenerator() {
+	}
+
+	/*
+	 * Appends the legal moves of the given color. enPassantSquare is the square a
+	 * pawn can move to when capturing en passant, or -1 when there is none.
+	 */
+	public static void generate(ChessBoard board, Color us, int castlingRights, int enPassantSquare,
+			MoveList moves) {
+		Color them = (us == Color.WHITE) ? Color.BLACK : Color.WHITE;
+		long occupied = board.occupied();
+		long own = board.pieces(us);
+		long enemy = board.pieces(them);
+		long king = board.pieces(us, ChessBoard.KING);
+		if (king == 0) {
+			throw new IllegalStateException("There is no " + us + " king on the board");
+		}
+		int kingSquare = Long.numberOfTrailingZeros(king);
+
+		long checkers = attackers(board, kingSquare, them, occupied);
+
+		// king moves, with the king lifted off the board so it cannot hide behind itself
+		long kingTargets = Attacks.KING[kingSquare] & ~own;
+		long withoutKing = occupied ^ king;
+		while (kingTargets != 0) {
+			int to = Long.numberOfTrailingZeros(kingTargets);
+			if (attackers(board, to, them, withoutKing) == 0) {
+				moves.add(Move.encode(kingSquare, to, (enemy & (1L << to)) != 0 ? Move.CAPTURE : 0, 0));
+			}
+			kingTargets &= kingTargets - 1;
+		}
+
+		// in double check only the king can move
+		if (Long.bitCount(checkers) > 1) {
+			return;
+		}
+
+		long checkMask = -1L;
+		if (checkers != 0) {
+			int checker = Long.numberOfTrailingZeros(checkers);
+			checkMask = checkers | Attacks.BETWEEN[kingSquare][checker];
+		}
+
+		long pinned = pinned(board, us, them, kingSquare);
+		long targetMask = ~own & checkMask;
+
+		for (int type = ChessBoard.KNIGHT; type <= ChessBoard.QUEEN; type++) {
+			long pieces = board.pieces(us, type);
+			while (pieces != 0) {
+				int from = Long.numberOfTrailingZeros(pieces);
+				long targets = attacks(type, from, occupied) & targetMask;
+				if ((pinned & (1L << from)) != 0) {
+					targets &= Attacks.LINE[kingSquare][from];
+				}
+				addMoves(moves, from, targets, enemy);
+				pieces &= pieces - 1;
+			}
+		}
+
+		generatePawnMoves(board, us, kingSquare, pinned, checkMask, checkers, enPassantSquare, moves);
+
+		if (checkers == 0) {
+			generateCastling(board, us, them, kingSquare, castlingRights, moves);
+		}
+	}
+
+	/*
+	 * Whether the given color has any legal move. Stops at the first one found,
+	 * trying king moves first, and never builds a move list.
+	 */
+	public static boolean hasLegalMove(ChessBoard board, Color us, int enPassantSquare) {
+		Color them = (us == Color.WHITE) ? Color.BLACK : Color.WHITE;
+		long occupied = board.occupied();
+		long own = board.pieces(us);
+		long king = board.pieces(us, ChessBoard.KING);
+		if (king == 0) {
+			throw new IllegalStateException("There is no " + us + " king on the board");
+		}
+		int kingSquare = Long.numberOfTrailingZeros(king);
+		long checkers = attackers(board, kingSquare, them, occupied);
+
+		// castling is not needed: when it is legal, so is the king step towards the rook
+		long kingTargets = Attacks.KING[kingSquare] & ~own;
+		long withoutKing = occupied ^ king;
+		while (kingTargets != 0) {
+			if (attackers(board, Long.numberOfTrailingZeros(kingTargets), them, withoutKing) == 0) {
+				return true;
+			}
+			kingTargets &= kingTargets - 1;
+		}
+		if (Long.bitCount(checkers) > 1) {
+			return false;
+		}
+
+		long checkMask = -1L;
+		if (checkers != 0) {
+			checkMask = checkers | Attacks.BETWEEN[kingSquare][Long.numberOfTrailingZeros(checkers)];
+		}
+		long pinned = pinned(board, us, them, kingSquare);
+		long targetMask = ~own & checkMask;
+
+		for (int type = ChessBoard.KNIGHT; type <= ChessBoard.QUEEN; type++) {
+			long pieces = board.pieces(us, type);
+			while (pieces != 0) {
+				int from = Long.numberOfTrailingZeros(pieces);
+				long targets = attacks(type, from, occupied) & targetMask;
+				if ((pinned & (1L << from)) != 0) {
+					targets &= Attacks.LINE[kingSquare][from];
+				}
+				if (targets != 0) {
+					return true;
+				}
+				pieces &= pieces - 1;
+			}
+		}
+
+		long enemy = board.pieces(them);
+		int forward = (us == Color.WHITE) ? -8 : 8;
+		int startRow = (us == Color.WHITE) ? 6 : 1;
+		long pawns = board.pieces(us, ChessBoard.PAWN);
+		while (pawns != 0) {
+			int from = Long.numberOfTrailingZeros(pawns);
+			pawns &= pawns - 1;
+			long allowed = checkMask;
+			if ((pinned & (1L << from)) != 0) {
+				allowed &= Attacks.LINE[kingSquare][from];
+			}
+			int next = from + forward;
+			if ((occupied & (1L << next)) == 0) {
+				if ((allowed & (1L << next)) != 0) {
+					return true;
+				}
+				int twoAhead = next + forward;
+				if (ChessBoard.row(from) == startRow && (occupied & (1L << twoAhead)) == 0
+						&& (allowed & (1L << twoAhead)) != 0) {
+					return true;
+				}
+			}
+			if ((Attacks.PAWN[us.ordinal()][from] & enemy & allowed) != 0) {
+				return true;
+			}
+			if (enPassantSquare >= 0 && (Attacks.PAWN[us.ordinal()][from] & (1L << enPassantSquare)) != 0
+					&& isLegalEnPassant(board, them, kingSquare, from, enPassantSquare, enPassantSquare - forward,
+							checkers)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// a piece is pinned when it is the only piece between the king and an enemy slider
+	private static long pinned(ChessBoard board, Color us, Color them, int kingSquare) {
+		long occupied = board.occupied();
+		long enemy = board.pieces(them);
+		long straight = board.pieces(them, ChessBoard.ROOK) | board.pieces(them, ChessBoard.QUEEN);
+		long diagonal = board.pieces(them, ChessBoard.BISHOP) | board.pieces(them, ChessBoard.QUEEN);
+		long pinned = 0;
+		long snipers = (Attacks.rook(kingSquare, enemy) & straight) | (Attacks.bishop(kingSquare, enemy) & diagonal);
+		while (snipers != 0) {
+			int sniper = Long.numberOfTrailingZeros(snipers);
+			long between = Attacks.BETWEEN[kingSquare][sniper] & occupied;
+			if (Long.bitCount(between) == 1) {
+				pinned |= between & board.pieces(us);
+			}
+			snipers &= snipers - 1;
+		}
+		return pinned;
+	}
+
+	// pieces of the given color attacking a square, for the given occupancy
+	public static long attackers(ChessBoard board, int square, Color color, long occupied) {
+		Color other = (color == Color.WHITE) ? Color.BLACK : Color.WHITE;
+		return (Attacks.PAWN[other.ordinal()][square] & board.pieces(color, ChessBoard.PAWN))
+				| (Attacks.KNIGHT[square] & board.pieces(color, ChessBoard.KNIGHT))
+				| (Attacks.KING[square] & board.pieces(color, ChessBoard.KING))
+				| (Attacks.bishop(square, occupied)
+						& (board.pieces(color, ChessBoard.BISHOP) | board.pieces(color, ChessBoard.QUEEN)))
+				| (Attacks.rook(square, occupied)
+						& (board.pieces(color, ChessBoard.ROOK) | board.pieces(color, ChessBoard.QUEEN)));
+	}
+
+	private static long attacks(int type, int square, long occupied) {
+		switch (type) {
+		case ChessBoard.KNIGHT:
+			return Attacks.KNIGHT[square];
+		case ChessBoard.BISHOP:
+			return Attacks.bishop(square, occupied);
+		case ChessBoard.ROOK:
+			return Attacks.rook(square, occupied);
+		default:
+			return Attacks.queen(square, occupied);
+		}
+	}
+
+	private static void addMoves(MoveList moves, int from, long targets, long enemy) {
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			moves.add(Move.encode(from, to, (enemy & (1L << to)) != 0 ? Move.CAPTURE : 0, 0));
+			targets &= targets - 1;
+		}
+	}
+
+	private static void generatePawnMoves(ChessBoard board, Color us, int kingSquare, long pinned, long checkMask,
+			long checkers, int enPassantSquare, MoveList moves) {
+		Color them = (us == Color.WHITE) ? Color.BLACK : Color.WHITE;
+		long occupied = board.occupied();
+		long enemy = board.pieces(them);
+		int forward = (us == Color.WHITE) ? -8 : 8;
+		int startRow = (us == Color.WHITE) ? 6 : 1;
+
+		long pawns = board.pieces(us, ChessBoard.PAWN);
+		while (pawns != 0) {
+			int from = Long.numberOfTrailingZeros(pawns);
+			pawns &= pawns - 1;
+			long allowed = checkMask;
+			if ((pinned & (1L << from)) != 0) {
+				allowed &= Attacks.LINE[kingSquare][from];
+			}
+
+			int next = from + forward;
+			if ((occupied & (1L << next)) == 0) {
+				if ((allowed & (1L << next)) != 0) {
+					addPawnMove(moves, from, next, 0);
+				}
+				int twoAhead = next + forward;
+				if (ChessBoard.row(from) == startRow && (occupied & (1L << twoAhead)) == 0
+						&& (allowed & (1L << twoAhead)) != 0) {
+					moves.add(Move.encode(from, twoAhead, Move.DOUBLE_PAWN_PUSH, 0));
+				}
+			}
+
+			long captures = Attacks.PAWN[us.ordinal()][from] & enemy & allowed;
+			while (captures != 0) {
+				addPawnMove(moves, from, Long.numberOfTrailingZeros(captures), Move.CAPTURE);
+				captures &= captures - 1;
+			}
+
+			// special move en passant
+			if (enPassantSquare >= 0 && (Attacks.PAWN[us.ordinal()][from] & (1L << enPassantSquare)) != 0) {
+				int capturedSquare = enPassantSquare - forward;
+				if (isLegalEnPassant(board, them, kingSquare, from, enPassantSquare, capturedSquare, checkers)) {
+					moves.add(Move.encode(from, enPassantSquare, Move.EN_PASSANT, 0));
+				}
+			}
+		}
+	}
+
+	// replays the occupancy change of an en passant capture, which can uncover the king along a rank
+	private static boolean isLegalEnPassant(ChessBoard board, Color them, int kingSquare, int from, int to,
+			int capturedSquare, long checkers) {
+		long captured = 1L << capturedSquare;
+		long otherCheckers = checkers & ~captured;
+		if ((otherCheckers & (board.pieces(them, ChessBoard.KNIGHT) | board.pieces(them, ChessBoard.PAWN))) != 0) {
+			return false;
+		}
+		long occupied = (board.occupied() ^ (1L << from) ^ captured) | (1L << to);
+		long straight = board.pieces(them, ChessBoard.ROOK) | board.pieces(them, ChessBoard.QUEEN);
+		long diagonal = board.pieces(them, ChessBoard.BISHOP) | board.pieces(them, ChessBoard.QUEEN);
+		return (Attacks.rook(kingSquare, occupied) & straight) == 0
+				&& (Attacks.bishop(kingSquare, occupied) & diagonal) == 0;
+	}
+
+	private static void addPawnMove(MoveList moves, int from, int to, int flags) {
+		int row = ChessBoard.row(to);
+		if (row == 0 || row == 7) {
+			// special move promotion
+			moves.add(Move.encode(from, to, flags, ChessBoard.QUEEN));
+			moves.add(Move.encode(from, to, flags, ChessBoard.ROOK));
+			moves.add(Move.encode(from, to, flags, ChessBoard.BISHOP));
+			moves.add(Move.encode(from, to, flags, ChessBoard.KNIGHT));
+		} else {
+			moves.add(Move.encode(from, to, flags, 0));
+		}
+	}
+
+	private static void generateCastling(ChessBoard board, Color us, Color them, int kingSquare, int castlingRights,
+			MoveList moves) {
+		int kingside = (us == Color.WHITE) ? Zobrist.WHITE_KINGSIDE : Zobrist.BLACK_KINGSIDE;
+		int queenside = (us == Color.WHITE) ? Zobrist.WHITE_QUEENSIDE : Zobrist.BLACK_QUEENSIDE;
+		long occupied = board.occupied();
+
+		// the king may not pass through or land on an attacked square
+		if ((castlingRights & kingside) != 0
+				&& (occupied & ((1L << (kingSquare + 1)) | (1L << (kingSquare + 2)))) == 0
+				&& !board.isAttacked(kingSquare + 1, them) && !board.isAttacked(kingSquare + 2, them)) {
+			moves.add(Move.encode(kingSquare, kingSquare + 2, Move.CASTLING, 0));
+		}
+		if ((castlingRights & queenside) != 0
+				&& (occupied & ((1L << (kingSquare - 1)) | (1L << (kingSquare - 2)) | (1L << (kingSquare - 3)))) == 0
+				&& !board.isAttacked(kingSquare - 1, them) && !board.isAttacked(kingSquare - 2, them)) {
+			moves.add(Move.encode(kingSquare, kingSquare - 2, Move.CASTLING, 0));
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package chess;
+
+/*
+ * Reusable buffer of packed moves. Generators append to it and callers clear
+ * it between uses, so move generation itself never allocates.
+ */
+public class MoveList {
+
+	private int[] moves;
+	private int size;
+
+	public MoveList() {
+		this(256);
+	}
+
+	public MoveList(int capacity) {
+		moves = new int[capacity];
+	}
+
+	public void add(int move) {
+		moves[size++] = move;
+	}
+
+	public int get(int index) {
+		return moves[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void swap(int i, int j) {
+		int move = moves[i];
+		moves[i] = moves[j];
+		moves[j] = move;
+	}
+
+	public boolean containsTarget(int from, int to) {
+		for (int i = 0; i < size; i++) {
+			if (Move.from(moves[i]) == from && Move.to(moves[i]) == to) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,67 @@
+package chess;
+
+import chess.color.Color;
+
+/*
+ * Pieces on the board grouped by color and type. Each piece remembers its
+ * slot, so adding and removing are O(1) (removal moves the last piece of the
+ * group into the freed slot) and the king of each color is found directly.
+ */
+public class PieceRegistry {
+
+	// a color can have at most 10 pieces of one type: 2 originals plus 8 promotions
+	static final int CAPACITY = 10;
+
+	private ChessPiece[][] pieces = new ChessPiece[12][CAPACITY];
+	private int[] counts = new int[12];
+	private int[] colorCounts = new int[2];
+
+	void add(ChessPiece piece) {
+		int code = ChessBoard.pieceCode(piece.getColor(), piece.getType());
+		if (counts[code] == CAPACITY) {
+			throw new IllegalStateException("Too many pieces of the same type on the board");
+		}
+		piece.registryIndex = counts[code];
+		pieces[code][counts[code]++] = piece;
+		colorCounts[piece.getColor().ordinal()]++;
+	}
+
+	void remove(ChessPiece piece) {
+		int code = ChessBoard.pieceCode(piece.getColor(), piece.getType());
+		int index = piece.registryIndex;
+		// a piece missing here means the board and the registry went out of step
+		if (index < 0 || index >= counts[code] || pieces[code][index] != piece) {
+			throw new IllegalStateException(piece.getColor() + " " + piece + " is not on the board");
+		}
+		ChessPiece last = pieces[code][--counts[code]];
+		pieces[code][index] = last;
+		last.registryIndex = index;
+		pieces[code][counts[code]] = null;
+		piece.registryIndex = -1;
+		colorCounts[piece.getColor().ordinal()]--;
+	}
+
+	public int count(Color color, int type) {
+		return counts[ChessBoard.pieceCode(color, type)];
+	}
+
+	public int count(Color color) {
+		return colorCounts[color.ordinal()];
+	}
+
+	public ChessPiece get(Color color, int type, int index) {
+		return pieces[ChessBoard.pieceCode(color, type)][index];
+	}
+
+	public ChessPiece king(Color color) {
+		ChessPiece king = pieces[ChessBoard.pieceCode(color, ChessBoard.KING)][0];
+		if (king == null) {
+			throw new IllegalStateException("There is no " + color + " king on the board");
+		}
+		return king;
+	}
+
+	public int kingSquare(Color color) {
+		return king(color).square();
+	}
+}
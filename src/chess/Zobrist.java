@@ -0,0 +1,47 @@
+package chess;
+
+/*
+ * Random keys for Zobrist hashing. They come from a fixed seed, so a position
+ * has the same key in every run and hashes can be stored on disk.
+ */
+public final class Zobrist {
+
+	static final long[][] PIECES = new long[12][64];
+	static final long[] CASTLING = new long[16];
+	static final long[] EN_PASSANT_FILE = new long[8];
+	static final long BLACK_TO_MOVE;
+
+	public static final int WHITE_KINGSIDE = 1;
+	public static final int WHITE_QUEENSIDE = 2;
+	public static final int BLACK_KINGSIDE = 4;
+	public static final int BLACK_QUEENSIDE = 8;
+
+	private static long seed = 0x9E3779B97F4A7C15L;
+
+	static {
+		for (int i = 0; i < PIECES.length; i++) {
+			for (int j = 0; j < PIECES[i].length; j++) {
+				PIECES[i][j] = next();
+			}
+		}
+		for (int i = 0; i < CASTLING.length; i++) {
+			CASTLING[i] = next();
+		}
+		CASTLING[0] = 0;
+		for (int i = 0; i < EN_PASSANT_FILE.length; i++) {
+			EN_PASSANT_FILE[i] = next();
+		}
+		BLACK_TO_MOVE = next();
+	}
+
+	private Zobrist() {
+	}
+
+	// splitmix64
+	private static long next() {
+		long z = (seed += 0x9E3779B97F4A7C15L);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
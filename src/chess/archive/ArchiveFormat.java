@@ -0,0 +1,112 @@
+package chess.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.Move;
+
+/*
+ * Layout shared by GameArchiveWriter and GameArchive. An archive is two
+ * files: "<name>.games" holds a fixed-size header record per game and
+ * "<name>.moves" holds the moves of every game, two bytes per move. Both
+ * start with a 16-byte file header (magic number and version).
+ *
+ * Header record, 96 bytes:
+ *   0 long  offset of the game in the moves file
+ *   8 int   number of moves (plies)
+ *  12 byte  result (see GameHeader)
+ *  13 byte  flags; bit 0 set when the game starts from a FEN position
+ *  14 short white Elo
+ *  16 short black Elo
+ *  20 int   date as yyyymmdd, unknown parts are 0
+ *  24 32 bytes white player, UTF-8, zero padded
+ *  56 32 bytes black player, UTF-8, zero padded
+ *
+ * A game starting from a FEN position stores the FEN in front of its moves
+ * as a 2-byte length followed by the text, padded to an even length.
+ */
+final class ArchiveFormat {
+
+	static final long GAMES_MAGIC = 0x4348455353474D31L; // "CHESSGM1"
+	static final long MOVES_MAGIC = 0x43484553534D5631L; // "CHESSMV1"
+	static final int VERSION = 1;
+	static final int FILE_HEADER_SIZE = 16;
+
+	static final int RECORD_SIZE = 96;
+	static final int OFFSET = 0;
+	static final int PLIES = 8;
+	static final int RESULT = 12;
+	static final int FLAGS = 13;
+	static final int WHITE_ELO = 14;
+	static final int BLACK_ELO = 16;
+	static final int DATE = 20;
+	static final int WHITE = 24;
+	static final int BLACK = 56;
+	static final int NAME_SIZE = 32;
+
+	static final int FLAG_FEN = 1;
+
+	static final String GAMES_SUFFIX = ".games";
+	static final String MOVES_SUFFIX = ".moves";
+
+	private ArchiveFormat() {
+	}
+
+	static void checkHeader(FileChannel channel, long magic, Path path) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+		while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+		}
+		header.flip();
+		if (header.remaining() < FILE_HEADER_SIZE || header.getLong() != magic) {
+			throw new IOException(path + " is not a game archive file");
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new IOException(path + " has unsupported archive version " + version);
+		}
+	}
+
+	// writes the buffer from its start to its position at the given file position
+	static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		buffer.flip();
+		int written = 0;
+		while (buffer.hasRemaining()) {
+			written += channel.write(buffer, position + written);
+		}
+		buffer.clear();
+		return written;
+	}
+
+	// source in bits 0-5, target in bits 6-11, promotion piece type in bits 12-14
+	static short encode(int move) {
+		return (short) (Move.from(move) | Move.to(move) << 6 | Move.promotion(move) << 12);
+	}
+
+	/*
+	 * Rebuilds the full move from its 16 bits and the position it is played
+	 * in. The flags follow from the pieces involved, so no move generation is
+	 * needed; the move is trusted to be legal.
+	 */
+	static int decode(ChessMatch chessMatch, short code) {
+		int from = code & 0x3F;
+		int to = (code >>> 6) & 0x3F;
+		int promotion = (code >>> 12) & 0x7;
+		int type = ChessBoard.typeOf(chessMatch.getPieceCode(from));
+		boolean capture = chessMatch.getPieceCode(to) != ChessBoard.NO_PIECE;
+		int flags = capture ? Move.CAPTURE : 0;
+		if (type == ChessBoard.PAWN) {
+			if (Math.abs(to - from) == 16) {
+				flags = Move.DOUBLE_PAWN_PUSH;
+			} else if (!capture && ChessBoard.column(to) != ChessBoard.column(from)) {
+				flags = Move.EN_PASSANT;
+			}
+		} else if (type == ChessBoard.KING && Math.abs(ChessBoard.column(to) - ChessBoard.column(from)) == 2) {
+			flags = Move.CASTLING;
+		}
+		return Move.encode(from, to, flags, promotion);
+	}
+}
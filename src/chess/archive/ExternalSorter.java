@@ -0,0 +1,184 @@
+package chess.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+ * Sorts (key, value) pairs of longs by unsigned key with bounded memory:
+ * pairs are collected in fixed-size runs, each run is radix sorted and
+ * spilled to a temporary file, and the runs are merged on the way out. The
+ * sort is stable, so pairs with the same key come out in the order they were
+ * added.
+ */
+final class ExternalSorter implements Closeable {
+
+	interface Sink {
+		void accept(long key, long value) throws IOException;
+	}
+
+	static final int DEFAULT_RUN_ENTRIES = 1 << 22;
+
+	private Path directory;
+	private long[] keys;
+	private long[] values;
+	private long[] scratchKeys;
+	private long[] scratchValues;
+	private int size;
+	private long count;
+	private List<Path> runs = new ArrayList<>();
+
+	// the runs are written to a temporary directory next to the given path
+	ExternalSorter(Path near, int runEntries) throws IOException {
+		if (runEntries < 1) {
+			throw new IllegalArgumentException("A run must hold at least one entry");
+		}
+		directory = Files.createTempDirectory(near.toAbsolutePath().getParent(), "sort-runs");
+		keys = new long[runEntries];
+		values = new long[runEntries];
+		scratchKeys = new long[runEntries];
+		scratchValues = new long[runEntries];
+	}
+
+	long size() {
+		return count;
+	}
+
+	void add(long key, long value) throws IOException {
+		if (size == keys.length) {
+			spill();
+		}
+		keys[size] = key;
+		values[size] = value;
+		size++;
+		count++;
+	}
+
+	// hands every pair to the sink in key order; the sorter is spent afterwards
+	void merge(Sink sink) throws IOException {
+		spill();
+		keys = values = scratchKeys = scratchValues = null;
+		PriorityQueue<Run> queue = new PriorityQueue<>();
+		try {
+			for (int i = 0; i < runs.size(); i++) {
+				Run run = new Run(runs.get(i), i);
+				if (run.next()) {
+					queue.add(run);
+				} else {
+					run.close();
+				}
+			}
+			while (!queue.isEmpty()) {
+				Run run = queue.poll();
+				sink.accept(run.key, run.value);
+				if (run.next()) {
+					queue.add(run);
+				} else {
+					run.close();
+				}
+			}
+		} finally {
+			for (Run run : queue) {
+				run.close();
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (Path run : runs) {
+			Files.deleteIfExists(run);
+		}
+		runs.clear();
+		Files.deleteIfExists(directory);
+	}
+
+	private void spill() throws IOException {
+		if (size == 0) {
+			return;
+		}
+		sort();
+		Path run = Files.createTempFile(directory, "run", ".tmp");
+		runs.add(run);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+			for (int i = 0; i < size; i++) {
+				out.writeLong(keys[i]);
+				out.writeLong(values[i]);
+			}
+		}
+		size = 0;
+	}
+
+	// LSD radix sort on the unsigned key, one byte per pass
+	private void sort() {
+		int[] counts = new int[257];
+		for (int shift = 0; shift < 64; shift += 8) {
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < size; i++) {
+				counts[(int) ((keys[i] >>> shift) & 0xFF) + 1]++;
+			}
+			if (counts[(int) ((keys[0] >>> shift) & 0xFF) + 1] == size) {
+				// every key has the same byte here
+				continue;
+			}
+			for (int i = 0; i < 256; i++) {
+				counts[i + 1] += counts[i];
+			}
+			for (int i = 0; i < size; i++) {
+				int target = counts[(int) ((keys[i] >>> shift) & 0xFF)]++;
+				scratchKeys[target] = keys[i];
+				scratchValues[target] = values[i];
+			}
+			long[] swap = keys;
+			keys = scratchKeys;
+			scratchKeys = swap;
+			swap = values;
+			values = scratchValues;
+			scratchValues = swap;
+		}
+	}
+
+	// cursor over a sorted run; ties go to the earlier run to keep the sort stable
+	private static class Run implements Comparable<Run> {
+
+		private DataInputStream in;
+		private int order;
+		private long key;
+		private long value;
+
+		Run(Path path, int order) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+			this.order = order;
+		}
+
+		boolean next() throws IOException {
+			try {
+				key = in.readLong();
+				value = in.readLong();
+				return true;
+			} catch (EOFException e) {
+				return false;
+			}
+		}
+
+		void close() throws IOException {
+			in.close();
+		}
+
+		@Override
+		public int compareTo(Run other) {
+			int compare = Long.compareUnsigned(key, other.key);
+			return compare != 0 ? compare : Integer.compare(order, other.order);
+		}
+	}
+}
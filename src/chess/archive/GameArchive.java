@@ -0,0 +1,154 @@
+package chess.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import chess.ChessMatch;
+
+/*
+ * Read access to an archive written by GameArchiveWriter. Both files are
+ * memory-mapped, so any game is found from its index alone and rebuilt move
+ * by move without any text parsing. The archive is seen as it was when it
+ * was opened; games appended later need a new GameArchive.
+ */
+public class GameArchive implements Closeable {
+
+	private MappedFile games;
+	private MappedFile moves;
+	private long count;
+
+	public GameArchive(Path base) throws IOException {
+		games = new MappedFile(Paths.get(base + ArchiveFormat.GAMES_SUFFIX));
+		moves = new MappedFile(Paths.get(base + ArchiveFormat.MOVES_SUFFIX));
+		checkHeader(games, ArchiveFormat.GAMES_MAGIC, base + ArchiveFormat.GAMES_SUFFIX);
+		checkHeader(moves, ArchiveFormat.MOVES_MAGIC, base + ArchiveFormat.MOVES_SUFFIX);
+		count = (games.size() - ArchiveFormat.FILE_HEADER_SIZE) / ArchiveFormat.RECORD_SIZE;
+	}
+
+	public long size() {
+		return count;
+	}
+
+	public GameHeader header(long index) {
+		long record = record(index);
+		byte[] white = new byte[ArchiveFormat.NAME_SIZE];
+		byte[] black = new byte[ArchiveFormat.NAME_SIZE];
+		games.get(record + ArchiveFormat.WHITE, white);
+		games.get(record + ArchiveFormat.BLACK, black);
+		return new GameHeader(name(white), name(black), games.getShort(record + ArchiveFormat.WHITE_ELO),
+				games.getShort(record + ArchiveFormat.BLACK_ELO), games.getInt(record + ArchiveFormat.DATE),
+				games.get(record + ArchiveFormat.RESULT), games.getInt(record + ArchiveFormat.PLIES),
+				startFen(record));
+	}
+
+	public int plies(long index) {
+		return games.getInt(record(index) + ArchiveFormat.PLIES);
+	}
+
+	// the moves of a game as packed ints (see chess.Move)
+	public int[] moves(long index) {
+		return moves(index, Integer.MAX_VALUE);
+	}
+
+	// the first plies moves of a game (or all of them, if it has fewer)
+	public int[] moves(long index, int plies) {
+		long record = record(index);
+		int[] result = new int[Math.min(Math.max(plies, 0), games.getInt(record + ArchiveFormat.PLIES))];
+		replay(record, result.length, result, null);
+		return result;
+	}
+
+	// Zobrist keys of every position of a game, from its start (ply 0) to its last move
+	long[] keys(long index) {
+		long record = record(index);
+		long[] result = new long[games.getInt(record + ArchiveFormat.PLIES) + 1];
+		replay(record, result.length - 1, null, result);
+		return result;
+	}
+
+	public ChessMatch replay(long index) {
+		return replay(index, Integer.MAX_VALUE);
+	}
+
+	// the position of a game after its first plies moves (or all of them, if it has fewer)
+	public ChessMatch replay(long index, int plies) {
+		long record = record(index);
+		return replay(record, Math.min(Math.max(plies, 0), games.getInt(record + ArchiveFormat.PLIES)), null, null);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			games.close();
+		} finally {
+			moves.close();
+		}
+	}
+
+	private ChessMatch replay(long record, int plies, int[] decoded, long[] keys) {
+		String fen = startFen(record);
+		ChessMatch chessMatch = fen == null ? new ChessMatch() : new ChessMatch(fen);
+		long offset = movesOffset(record);
+		if (keys != null) {
+			keys[0] = chessMatch.getZobristKey();
+		}
+		for (int i = 0; i < plies; i++) {
+			int move = ArchiveFormat.decode(chessMatch, moves.getShort(offset + 2L * i));
+			if (decoded != null) {
+				decoded[i] = move;
+			}
+			chessMatch.makeMove(move);
+			if (keys != null) {
+				keys[i + 1] = chessMatch.getZobristKey();
+			}
+		}
+		return chessMatch;
+	}
+
+	private long record(long index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException("Game " + index + " is not in the archive of " + count + " games");
+		}
+		return ArchiveFormat.FILE_HEADER_SIZE + index * ArchiveFormat.RECORD_SIZE;
+	}
+
+	private String startFen(long record) {
+		if ((games.get(record + ArchiveFormat.FLAGS) & ArchiveFormat.FLAG_FEN) == 0) {
+			return null;
+		}
+		long offset = games.getLong(record + ArchiveFormat.OFFSET);
+		byte[] fen = new byte[moves.getShort(offset) & 0xFFFF];
+		moves.get(offset + 2, fen);
+		return new String(fen, StandardCharsets.US_ASCII);
+	}
+
+	// where the moves start, after the FEN of a game that has one
+	private long movesOffset(long record) {
+		long offset = games.getLong(record + ArchiveFormat.OFFSET);
+		if ((games.get(record + ArchiveFormat.FLAGS) & ArchiveFormat.FLAG_FEN) != 0) {
+			int length = moves.getShort(offset) & 0xFFFF;
+			offset += 2 + length + (length & 1);
+		}
+		return offset;
+	}
+
+	private static String name(byte[] bytes) {
+		int length = 0;
+		while (length < bytes.length && bytes[length] != 0) {
+			length++;
+		}
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private static void checkHeader(MappedFile file, long magic, String path) throws IOException {
+		if (file.size() < ArchiveFormat.FILE_HEADER_SIZE || file.getLong(0) != magic) {
+			throw new IOException(path + " is not a game archive file");
+		}
+		if (file.getInt(8) != ArchiveFormat.VERSION) {
+			throw new IOException(path + " has unsupported archive version " + file.getInt(8));
+		}
+	}
+}
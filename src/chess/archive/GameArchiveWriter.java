@@ -0,0 +1,146 @@
+package chess.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import chess.pgn.PgnGame;
+
+/*
+ * Appends games to an archive, creating it when it does not exist. Games are
+ * collected in memory and written in batches; the moves of a batch are
+ * forced to disk before its header records, so a header never points at
+ * moves that were not written.
+ */
+public class GameArchiveWriter implements Closeable {
+
+	public static final int DEFAULT_BATCH_BYTES = 1 << 20;
+
+	private FileChannel games;
+	private FileChannel moves;
+	private ByteBuffer gameBuffer;
+	private ByteBuffer moveBuffer;
+	private long movesSize;
+	private long gamesSize;
+	private long count;
+
+	public GameArchiveWriter(Path base) throws IOException {
+		this(base, DEFAULT_BATCH_BYTES);
+	}
+
+	public GameArchiveWriter(Path base, int batchBytes) throws IOException {
+		games = open(Paths.get(base + ArchiveFormat.GAMES_SUFFIX), ArchiveFormat.GAMES_MAGIC);
+		moves = open(Paths.get(base + ArchiveFormat.MOVES_SUFFIX), ArchiveFormat.MOVES_MAGIC);
+		gameBuffer = ByteBuffer.allocate(Math.max(ArchiveFormat.RECORD_SIZE, batchBytes / 8));
+		moveBuffer = ByteBuffer.allocate(Math.max(1024, batchBytes));
+		movesSize = moves.size();
+		// a record cut short by a crash is overwritten
+		count = (games.size() - ArchiveFormat.FILE_HEADER_SIZE) / ArchiveFormat.RECORD_SIZE;
+		gamesSize = ArchiveFormat.FILE_HEADER_SIZE + count * ArchiveFormat.RECORD_SIZE;
+	}
+
+	// number of games in the archive, including those not flushed yet
+	public long size() {
+		return count;
+	}
+
+	public long append(PgnGame game) throws IOException {
+		return append(GameHeader.of(game), game.getMoves());
+	}
+
+	/*
+	 * Adds a game given by its header and its moves as packed ints, returning
+	 * its index in the archive.
+	 */
+	public long append(GameHeader header, int[] gameMoves) throws IOException {
+		byte[] fen = header.getStartFen() == null ? null : header.getStartFen().getBytes(StandardCharsets.US_ASCII);
+		int bytes = gameMoves.length * 2 + (fen == null ? 0 : 2 + fen.length + (fen.length & 1));
+		if (moveBuffer.remaining() < bytes || gameBuffer.remaining() < ArchiveFormat.RECORD_SIZE) {
+			flush();
+		}
+		if (moveBuffer.remaining() < bytes) {
+			moveBuffer = ByteBuffer.allocate(bytes);
+		}
+
+		long offset = movesSize + moveBuffer.position();
+		if (fen != null) {
+			moveBuffer.putShort((short) fen.length);
+			moveBuffer.put(fen);
+			if ((fen.length & 1) != 0) {
+				moveBuffer.put((byte) 0);
+			}
+		}
+		for (int move : gameMoves) {
+			moveBuffer.putShort(ArchiveFormat.encode(move));
+		}
+
+		int start = gameBuffer.position();
+		gameBuffer.putLong(start + ArchiveFormat.OFFSET, offset);
+		gameBuffer.putInt(start + ArchiveFormat.PLIES, gameMoves.length);
+		gameBuffer.put(start + ArchiveFormat.RESULT, (byte) header.getResult());
+		gameBuffer.put(start + ArchiveFormat.FLAGS, (byte) (fen == null ? 0 : ArchiveFormat.FLAG_FEN));
+		gameBuffer.putShort(start + ArchiveFormat.WHITE_ELO, (short) header.getWhiteElo());
+		gameBuffer.putShort(start + ArchiveFormat.BLACK_ELO, (short) header.getBlackElo());
+		gameBuffer.putInt(start + ArchiveFormat.DATE, header.getDate());
+		putName(start + ArchiveFormat.WHITE, header.getWhite());
+		putName(start + ArchiveFormat.BLACK, header.getBlack());
+		gameBuffer.position(start + ArchiveFormat.RECORD_SIZE);
+		return count++;
+	}
+
+	public void flush() throws IOException {
+		moveBuffer.flip();
+		while (moveBuffer.hasRemaining()) {
+			movesSize += moves.write(moveBuffer, movesSize);
+		}
+		moveBuffer.clear();
+		moves.force(false);
+
+		gameBuffer.flip();
+		while (gameBuffer.hasRemaining()) {
+			gamesSize += games.write(gameBuffer, gamesSize);
+		}
+		gameBuffer.clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+			games.force(false);
+		} finally {
+			games.close();
+			moves.close();
+		}
+	}
+
+	private void putName(int index, String name) {
+		byte[] bytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, ArchiveFormat.NAME_SIZE);
+		// do not cut a multi-byte character in half
+		while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+			length--;
+		}
+		for (int i = 0; i < ArchiveFormat.NAME_SIZE; i++) {
+			gameBuffer.put(index + i, i < length ? bytes[i] : 0);
+		}
+	}
+
+	private static FileChannel open(Path path, long magic) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		if (channel.size() == 0) {
+			ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.FILE_HEADER_SIZE);
+			header.putLong(magic).putInt(ArchiveFormat.VERSION).rewind();
+			channel.write(header, 0);
+		} else {
+			ArchiveFormat.checkHeader(channel, magic, path);
+		}
+		return channel;
+	}
+}
@@ -0,0 +1,136 @@
+package chess.archive;
+
+import chess.pgn.PgnGame;
+
+/*
+ * The fixed-size part of an archived game: players, ratings, date, result,
+ * number of moves and starting position. Player names longer than 32 bytes
+ * of UTF-8 are cut.
+ */
+public class GameHeader {
+
+	public static final int RESULT_UNKNOWN = 0;
+	public static final int RESULT_WHITE_WINS = 1;
+	public static final int RESULT_BLACK_WINS = 2;
+	public static final int RESULT_DRAW = 3;
+
+	private String white;
+	private String black;
+	private int whiteElo;
+	private int blackElo;
+	private int date;
+	private int result;
+	private int plies;
+	private String startFen;
+
+	public GameHeader(String white, String black, int whiteElo, int blackElo, int date, int result, int plies,
+			String startFen) {
+		this.white = white;
+		this.black = black;
+		this.whiteElo = whiteElo;
+		this.blackElo = blackElo;
+		this.date = date;
+		this.result = result;
+		this.plies = plies;
+		this.startFen = startFen;
+	}
+
+	// header of a game replayed by PgnImporter, taken from its tags
+	public static GameHeader of(PgnGame game) {
+		return new GameHeader(tag(game, "White"), tag(game, "Black"), number(game.getTag("WhiteElo")),
+				number(game.getTag("BlackElo")), date(game.getTag("Date")), result(game.getResult()),
+				game.getMoves().length, game.getStartFen());
+	}
+
+	public String getWhite() {
+		return white;
+	}
+
+	public String getBlack() {
+		return black;
+	}
+
+	public int getWhiteElo() {
+		return whiteElo;
+	}
+
+	public int getBlackElo() {
+		return blackElo;
+	}
+
+	// yyyymmdd, with 0 for unknown parts
+	public int getDate() {
+		return date;
+	}
+
+	public int getResult() {
+		return result;
+	}
+
+	public String getResultText() {
+		switch (result) {
+		case RESULT_WHITE_WINS:
+			return "1-0";
+		case RESULT_BLACK_WINS:
+			return "0-1";
+		case RESULT_DRAW:
+			return "1/2-1/2";
+		default:
+			return "*";
+		}
+	}
+
+	public int getPlies() {
+		return plies;
+	}
+
+	// FEN of the starting position, or null for the standard one
+	public String getStartFen() {
+		return startFen;
+	}
+
+	private static String tag(PgnGame game, String name) {
+		String value = game.getTag(name);
+		return value == null ? "?" : value;
+	}
+
+	private static int number(String text) {
+		try {
+			return text == null ? 0 : Math.max(0, Math.min(Short.MAX_VALUE, Integer.parseInt(text.trim())));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	// "2023.07.14", "2023.??.??" and the like
+	private static int date(String text) {
+		if (text == null) {
+			return 0;
+		}
+		String[] parts = text.split("\\.");
+		int date = 0;
+		int[] scale = { 10000, 100, 1 };
+		for (int i = 0; i < parts.length && i < 3; i++) {
+			date += number(parts[i]) * scale[i];
+		}
+		return date;
+	}
+
+	private static int result(String text) {
+		switch (text) {
+		case "1-0":
+			return RESULT_WHITE_WINS;
+		case "0-1":
+			return RESULT_BLACK_WINS;
+		case "1/2-1/2":
+			return RESULT_DRAW;
+		default:
+			return RESULT_UNKNOWN;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return white + " - " + black + " " + getResultText() + " (" + plies + " plies)";
+	}
+}
@@ -0,0 +1,80 @@
+package chess.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Read-only memory mapping of a whole file. A single MappedByteBuffer is
+ * limited to 2 GB, so larger files are mapped as several segments and reads
+ * that cross a segment boundary are put together byte by byte.
+ */
+final class MappedFile implements Closeable {
+
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	private FileChannel channel;
+	private MappedByteBuffer[] segments;
+	private long size;
+
+	MappedFile(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		size = channel.size();
+		segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+		for (int i = 0; i < segments.length; i++) {
+			long start = (long) i << SEGMENT_SHIFT;
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+		}
+	}
+
+	long size() {
+		return size;
+	}
+
+	byte get(long offset) {
+		return segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK));
+	}
+
+	short getShort(long offset) {
+		if (fits(offset, Short.BYTES)) {
+			return segments[(int) (offset >>> SEGMENT_SHIFT)].getShort((int) (offset & SEGMENT_MASK));
+		}
+		return (short) ((get(offset) & 0xFF) << 8 | (get(offset + 1) & 0xFF));
+	}
+
+	int getInt(long offset) {
+		if (fits(offset, Integer.BYTES)) {
+			return segments[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & SEGMENT_MASK));
+		}
+		return (getShort(offset) & 0xFFFF) << 16 | (getShort(offset + 2) & 0xFFFF);
+	}
+
+	long getLong(long offset) {
+		if (fits(offset, Long.BYTES)) {
+			return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & SEGMENT_MASK));
+		}
+		return (getInt(offset) & 0xFFFFFFFFL) << 32 | (getInt(offset + 4) & 0xFFFFFFFFL);
+	}
+
+	void get(long offset, byte[] bytes) {
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = get(offset + i);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		// the mappings themselves are released when the buffers are collected
+		segments = new MappedByteBuffer[0];
+		channel.close();
+	}
+
+	private static boolean fits(long offset, int bytes) {
+		return (offset & SEGMENT_MASK) + bytes <= SEGMENT_SIZE;
+	}
+}
@@ -0,0 +1,149 @@
+package chess.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+
+/*
+ * Opening moves by position, read from a memory-mapped file built by
+ * OpeningBookBuilder. Entries are sorted by Zobrist key and, within a key,
+ * by decreasing weight, so a lookup is one binary search and the best move
+ * is the first entry found. Book moves are checked against the legal moves of
+ * the position, which guards against the rare hash collision.
+ *
+ * Layout, after a 32-byte file header (magic, version, entry count):
+ *   16-byte entries      long key, int move (see chess.Move), int weight
+ */
+public class OpeningBook implements Closeable {
+
+	static final long MAGIC = 0x4348455353424B31L; // "CHESSBK1"
+	static final int VERSION = 1;
+	static final long ENTRIES = 32;
+	static final int ENTRY_SIZE = 16;
+
+	private MappedFile file;
+	private long count;
+	private MoveList legalMoves = new MoveList();
+
+	public OpeningBook(Path path) throws IOException {
+		file = new MappedFile(path);
+		if (file.size() < ENTRIES || file.getLong(0) != MAGIC) {
+			throw new IOException(path + " is not an opening book");
+		}
+		if (file.getInt(8) != VERSION) {
+			throw new IOException(path + " has unsupported book version " + file.getInt(8));
+		}
+		count = file.getLong(16);
+		if (file.size() < ENTRIES + count * ENTRY_SIZE) {
+			throw new IOException(path + " is truncated");
+		}
+	}
+
+	public long size() {
+		return count;
+	}
+
+	// legal book moves of the position, best first
+	public synchronized List<BookMove> moves(ChessMatch chessMatch) {
+		List<BookMove> list = new ArrayList<>();
+		long key = chessMatch.getZobristKey();
+		long i = lowerBound(key);
+		if (i < count && file.getLong(ENTRIES + i * ENTRY_SIZE) == key) {
+			legalMoves.clear();
+			chessMatch.generateLegalMoves(legalMoves);
+			for (; i < count && file.getLong(ENTRIES + i * ENTRY_SIZE) == key; i++) {
+				int move = file.getInt(ENTRIES + i * ENTRY_SIZE + 8);
+				if (isLegal(move)) {
+					list.add(new BookMove(move, file.getInt(ENTRIES + i * ENTRY_SIZE + 12)));
+				}
+			}
+		}
+		return list;
+	}
+
+	// the most played move of the position, or Move.NONE when it is not in the book
+	public int bestMove(ChessMatch chessMatch) {
+		List<BookMove> list = moves(chessMatch);
+		return list.isEmpty() ? Move.NONE : list.get(0).getMove();
+	}
+
+	// a book move chosen at random in proportion to its weight, or Move.NONE
+	public int pickMove(ChessMatch chessMatch, Random random) {
+		List<BookMove> list = moves(chessMatch);
+		long total = 0;
+		for (BookMove bookMove : list) {
+			total += bookMove.getWeight();
+		}
+		if (total == 0) {
+			return Move.NONE;
+		}
+		long pick = (long) (random.nextDouble() * total);
+		for (BookMove bookMove : list) {
+			pick -= bookMove.getWeight();
+			if (pick < 0) {
+				return bookMove.getMove();
+			}
+		}
+		return list.get(list.size() - 1).getMove();
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	private boolean isLegal(int move) {
+		for (int i = 0; i < legalMoves.size(); i++) {
+			if (legalMoves.get(i) == move) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long lowerBound(long key) {
+		long low = 0;
+		long high = count;
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(file.getLong(ENTRIES + middle * ENTRY_SIZE), key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	// a move of the book and its weight, twice the games it won plus the games it drew
+	public static final class BookMove {
+
+		private final int move;
+		private final int weight;
+
+		BookMove(int move, int weight) {
+			this.move = move;
+			this.weight = weight;
+		}
+
+		public int getMove() {
+			return move;
+		}
+
+		public int getWeight() {
+			return weight;
+		}
+
+		@Override
+		public String toString() {
+			return Move.toString(move) + " (" + weight + ")";
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package chess.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.ChessMatch;
+import chess.color.Color;
+import chess.pgn.PgnGame;
+
+/*
+ * Builds an OpeningBook from a collection of games. The first plies of every
+ * game are recorded as (position, move, outcome) and sorted externally, then
+ * the moves played in each position are merged into weighted book entries.
+ * A move scores 2 for each game won by the side that played it and 1 for
+ * each draw or game without a result; moves that never scored are left out.
+ */
+public class OpeningBookBuilder implements Closeable {
+
+	public static final int DEFAULT_MAX_PLY = 24;
+
+	private static final int LOSS = 0;
+	private static final int DRAW = 1;
+	private static final int WIN = 2;
+
+	private Path book;
+	private int maxPly;
+	private ExternalSorter sorter;
+
+	public OpeningBookBuilder(Path book) throws IOException {
+		this(book, DEFAULT_MAX_PLY);
+	}
+
+	public OpeningBookBuilder(Path book, int maxPly) throws IOException {
+		this(book, maxPly, ExternalSorter.DEFAULT_RUN_ENTRIES);
+	}
+
+	public OpeningBookBuilder(Path book, int maxPly, int runEntries) throws IOException {
+		if (maxPly < 1) {
+			throw new IllegalArgumentException("The book must cover at least one ply");
+		}
+		this.book = book;
+		this.maxPly = maxPly;
+		this.sorter = new ExternalSorter(book, runEntries);
+	}
+
+	public void addGames(GameArchive archive) throws IOException {
+		for (long game = 0; game < archive.size(); game++) {
+			GameHeader header = archive.header(game);
+			addGame(header.getStartFen(), archive.moves(game, maxPly), header.getResult());
+		}
+	}
+
+	// a game already replayed, e.g. by PgnImporter
+	public void addGame(PgnGame game) throws IOException {
+		addGame(game.getStartFen(), game.getMoves(), GameHeader.of(game).getResult());
+	}
+
+	// a game given by its start position (null for the initial one), its moves and a GameHeader result
+	public void addGame(String startFen, int[] moves, int result) throws IOException {
+		ChessMatch chessMatch = startFen == null ? new ChessMatch() : new ChessMatch(startFen);
+		int plies = Math.min(moves.length, maxPly);
+		for (int ply = 0; ply < plies; ply++) {
+			int outcome = outcome(result, chessMatch.getCurrentPlayer());
+			sorter.add(chessMatch.getZobristKey(), (long) moves[ply] << 2 | outcome);
+			chessMatch.makeMove(moves[ply]);
+		}
+	}
+
+	// writes the book; the builder cannot be used afterwards
+	public void build() throws IOException {
+		try (FileChannel out = FileChannel.open(book, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			Writer writer = new Writer(out);
+			sorter.merge(writer::add);
+			writer.finish();
+
+			// the header goes last, so a book cut short by a crash is not mistaken for a complete one
+			ByteBuffer header = ByteBuffer.allocate((int) OpeningBook.ENTRIES);
+			header.putLong(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(0).putLong(writer.count).putLong(0);
+			out.force(false);
+			ArchiveFormat.write(out, header, 0);
+			out.force(false);
+		} finally {
+			close();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		sorter.close();
+	}
+
+	private static int outcome(int result, Color mover) {
+		if (result == GameHeader.RESULT_WHITE_WINS) {
+			return mover == Color.WHITE ? WIN : LOSS;
+		}
+		if (result == GameHeader.RESULT_BLACK_WINS) {
+			return mover == Color.BLACK ? WIN : LOSS;
+		}
+		return DRAW;
+	}
+
+	// collects the moves of one position at a time and writes them best first
+	private static class Writer {
+
+		private FileChannel out;
+		private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		private long position = OpeningBook.ENTRIES;
+		private long count;
+
+		private long key;
+		private int[] moves = new int[256];
+		private int[] weights = new int[256];
+		private int size;
+
+		Writer(FileChannel out) {
+			this.out = out;
+		}
+
+		void add(long key, long value) throws IOException {
+			if (key != this.key) {
+				writePosition();
+				this.key = key;
+			}
+			int move = (int) (value >>> 2);
+			int i = 0;
+			while (i < size && moves[i] != move) {
+				i++;
+			}
+			if (i == size) {
+				if (size == moves.length) {
+					// more distinct moves than a position can have: a hash collision, keep what we have
+					return;
+				}
+				moves[size] = move;
+				weights[size++] = 0;
+			}
+			weights[i] = (int) Math.min((long) weights[i] + (value & 3), Integer.MAX_VALUE);
+		}
+
+		void finish() throws IOException {
+			writePosition();
+			if (buffer.position() > 0) {
+				position += ArchiveFormat.write(out, buffer, position);
+			}
+		}
+
+		private void writePosition() throws IOException {
+			// insertion sort by decreasing weight; a position has few distinct moves
+			for (int i = 1; i < size; i++) {
+				int move = moves[i];
+				int weight = weights[i];
+				int j = i - 1;
+				while (j >= 0 && weights[j] < weight) {
+					moves[j + 1] = moves[j];
+					weights[j + 1] = weights[j];
+					j--;
+				}
+				moves[j + 1] = move;
+				weights[j + 1] = weight;
+			}
+			for (int i = 0; i < size && weights[i] > 0; i++) {
+				if (!buffer.hasRemaining()) {
+					position += ArchiveFormat.write(out, buffer, position);
+				}
+				buffer.putLong(key).putInt(moves[i]).putInt(weights[i]);
+				count++;
+			}
+			size = 0;
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package chess.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import chess.ChessMatch;
+
+/*
+ * Maps Zobrist keys to the games of an archive, and the plies within them,
+ * where each position occurred. The index is one memory-mapped file of
+ * entries sorted by key, so a lookup costs a few page reads however many
+ * positions it holds, and none of it lives on the Java heap. Keys are 64-bit
+ * hashes: a game found here can be confirmed with GameArchive.replay.
+ *
+ * Layout, after a 32-byte file header (magic, version, entry count):
+ *   FANOUT_SIZE + 1 longs, the first entry whose key starts with each
+ *                        16-bit prefix (the last one is the entry count)
+ *   16-byte entries      long key, long game << PLY_BITS | ply
+ */
+public class PositionIndex implements Closeable {
+
+	static final long MAGIC = 0x4348455353495831L; // "CHESSIX1"
+	static final int VERSION = 1;
+	static final int FANOUT_BITS = 16;
+	static final int FANOUT_SIZE = 1 << FANOUT_BITS;
+	static final long FANOUT = 32;
+	static final long ENTRIES = FANOUT + 8L * (FANOUT_SIZE + 1);
+	static final int ENTRY_SIZE = 16;
+
+	static final int PLY_BITS = 20;
+	static final int MAX_PLY = (1 << PLY_BITS) - 1;
+
+	private MappedFile file;
+	private long count;
+
+	public PositionIndex(Path path) throws IOException {
+		file = new MappedFile(path);
+		if (file.size() < ENTRIES || file.getLong(0) != MAGIC) {
+			throw new IOException(path + " is not a position index");
+		}
+		if (file.getInt(8) != VERSION) {
+			throw new IOException(path + " has unsupported index version " + file.getInt(8));
+		}
+		count = file.getLong(16);
+		if (file.size() < ENTRIES + count * ENTRY_SIZE) {
+			throw new IOException(path + " is truncated");
+		}
+	}
+
+	// number of indexed positions, counting every ply of every game
+	public long size() {
+		return count;
+	}
+
+	public long count(ChessMatch chessMatch) {
+		return count(chessMatch.getZobristKey());
+	}
+
+	public long count(long key) {
+		return upperBound(key) - lowerBound(key);
+	}
+
+	public List<Occurrence> find(ChessMatch chessMatch) {
+		return find(chessMatch.getZobristKey(), Integer.MAX_VALUE);
+	}
+
+	// at most limit occurrences of the position, by game index and then ply
+	public List<Occurrence> find(long key, int limit) {
+		List<Occurrence> list = new ArrayList<>();
+		long end = upperBound(key);
+		for (long i = lowerBound(key); i < end && list.size() < limit; i++) {
+			long value = file.getLong(ENTRIES + i * ENTRY_SIZE + 8);
+			list.add(new Occurrence(value >>> PLY_BITS, (int) (value & MAX_PLY)));
+		}
+		return list;
+	}
+
+	// index of every game that reached the position, each listed once, in archive order
+	public long[] games(ChessMatch chessMatch) {
+		return games(chessMatch.getZobristKey());
+	}
+
+	public long[] games(long key) {
+		long start = lowerBound(key);
+		long[] games = new long[(int) Math.min(upperBound(key) - start, Integer.MAX_VALUE - 8)];
+		int size = 0;
+		for (int i = 0; i < games.length; i++) {
+			long game = file.getLong(ENTRIES + (start + i) * ENTRY_SIZE + 8) >>> PLY_BITS;
+			if (size == 0 || games[size - 1] != game) {
+				games[size++] = game;
+			}
+		}
+		return Arrays.copyOf(games, size);
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	static long value(long game, int ply) {
+		return game << PLY_BITS | ply;
+	}
+
+	static int bucket(long key) {
+		return (int) (key >>> (64 - FANOUT_BITS));
+	}
+
+	// first entry whose key is not below key, searched within the bucket of its prefix
+	private long lowerBound(long key) {
+		long low = file.getLong(FANOUT + 8L * bucket(key));
+		long high = file.getLong(FANOUT + 8L * (bucket(key) + 1));
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (Long.compareUnsigned(file.getLong(ENTRIES + middle * ENTRY_SIZE), key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private long upperBound(long key) {
+		long low = lowerBound(key);
+		long high = file.getLong(FANOUT + 8L * (bucket(key) + 1));
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (file.getLong(ENTRIES + middle * ENTRY_SIZE) == key) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	// a position reached in a game, as the game index and the number of plies played
+	public static final class Occurrence {
+
+		private final long game;
+		private final int ply;
+
+		Occurrence(long game, int ply) {
+			this.game = game;
+			this.ply = ply;
+		}
+
+		public long getGame() {
+			return game;
+		}
+
+		public int getPly() {
+			return ply;
+		}
+
+		// move number in the usual notation, for games starting from the initial position
+		public int getMoveNumber() {
+			return ply / 2 + 1;
+		}
+
+		@Override
+		public String toString() {
+			return "game " + game + ", ply " + ply;
+		}
+	}
+}
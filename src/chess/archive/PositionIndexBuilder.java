@@ -0,0 +1,75 @@
+package chess.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Builds a PositionIndex from a game archive with an external sort, so memory
+ * use is set by the run size, not by the number of positions.
+ */
+public class PositionIndexBuilder {
+
+	public static final int DEFAULT_RUN_ENTRIES = ExternalSorter.DEFAULT_RUN_ENTRIES;
+
+	private int runEntries;
+
+	public PositionIndexBuilder() {
+		this(DEFAULT_RUN_ENTRIES);
+	}
+
+	public PositionIndexBuilder(int runEntries) {
+		if (runEntries < 1) {
+			throw new IllegalArgumentException("A run must hold at least one entry");
+		}
+		this.runEntries = runEntries;
+	}
+
+	// indexes every position of every game in the archive, from the start position to the last move
+	public void build(GameArchive archive, Path index) throws IOException {
+		try (ExternalSorter sorter = new ExternalSorter(index, runEntries)) {
+			for (long game = 0; game < archive.size(); game++) {
+				long[] keys = archive.keys(game);
+				int plies = Math.min(keys.length - 1, PositionIndex.MAX_PLY);
+				for (int ply = 0; ply <= plies; ply++) {
+					sorter.add(keys[ply], PositionIndex.value(game, ply));
+				}
+			}
+			write(sorter, index);
+		}
+	}
+
+	// writes the sorted entries, counting the entries of each fanout bucket on the way
+	private static void write(ExternalSorter sorter, Path index) throws IOException {
+		long[] fanout = new long[PositionIndex.FANOUT_SIZE + 1];
+		long total = sorter.size();
+		try (FileChannel out = FileChannel.open(index, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+			long[] position = { PositionIndex.ENTRIES };
+			sorter.merge((key, value) -> {
+				if (!buffer.hasRemaining()) {
+					position[0] += ArchiveFormat.write(out, buffer, position[0]);
+				}
+				buffer.putLong(key).putLong(value);
+				fanout[PositionIndex.bucket(key) + 1]++;
+			});
+			ArchiveFormat.write(out, buffer, position[0]);
+
+			// the header goes last, so an index cut short by a crash is not mistaken for a complete one
+			ByteBuffer header = ByteBuffer.allocate((int) PositionIndex.ENTRIES);
+			header.putLong(PositionIndex.MAGIC).putInt(PositionIndex.VERSION).putInt(0).putLong(total).putLong(0);
+			for (int i = 0; i < PositionIndex.FANOUT_SIZE; i++) {
+				fanout[i + 1] += fanout[i];
+			}
+			for (long start : fanout) {
+				header.putLong(start);
+			}
+			out.force(false);
+			ArchiveFormat.write(out, header, 0);
+			out.force(false);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.color.Color;
+
+/*
+ * Static evaluation in centipawns from the point of view of the side to move:
+ * material plus piece-square tables. Tables are written from White's side
+ * with a8 first, matching the ChessBoard square layout; Black mirrors them.
+ */
+public class Evaluation {
+
+	public static final int[] PIECE_VALUES = { 100, 320, 330, 500, 900, 0 };
+
+	private static final int[][] TABLES = {
+			// pawn
+			{ 0, 0, 0, 0, 0, 0, 0, 0,
+			50, 50, 50, 50, 50, 50, 50, 50,
+			10, 10, 20, 30, 30, 20, 10, 10,
+			5, 5, 10, 25, 25, 10, 5, 5,
+			0, 0, 0, 20, 20, 0, 0, 0,
+			5, -5, -10, 0, 0, -10, -5, 5,
+			5, 10, 10, -20, -20, 10, 10, 5,
+			0, 0, 0, 0, 0, 0, 0, 0 },
+			// knight
+			{ -50, -40, -30, -30, -30, -30, -40, -50,
+			-40, -20, 0, 0, 0, 0, -20, -40,
+			-30, 0, 10, 15, 15, 10, 0, -30,
+			-30, 5, 15, 20, 20, 15, 5, -30,
+			-30, 0, 15, 20, 20, 15, 0, -30,
+			-30, 5, 10, 15, 15, 10, 5, -30,
+			-40, -20, 0, 5, 5, 0, -20, -40,
+			-50, -40, -30, -30, -30, -30, -40, -50 },
+			// bishop
+			{ -20, -10, -10, -10, -10, -10, -10, -20,
+			-10, 0, 0, 0, 0, 0, 0, -10,
+			-10, 0, 5, 10, 10, 5, 0, -10,
+			-10, 5, 5, 10, 10, 5, 5, -10,
+			-10, 0, 10, 10, 10, 10, 0, -10,
+			-10, 10, 10, 10, 10, 10, 10, -10,
+			-10, 5, 0, 0, 0, 0, 5, -10,
+			-20, -10, -10, -10, -10, -10, -10, -20 },
+			// rook
+			{ 0, 0, 0, 0, 0, 0, 0, 0,
+			5, 10, 10, 10, 10, 10, 10, 5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			0, 0, 0, 5, 5, 0, 0, 0 },
+			// queen
+			{ -20, -10, -10, -5, -5, -10, -10, -20,
+			-10, 0, 0, 0, 0, 0, 0, -10,
+			-10, 0, 5, 5, 5, 5, 0, -10,
+			-5, 0, 5, 5, 5, 5, 0, -5,
+			0, 0, 5, 5, 5, 5, 0, -5,
+			-10, 5, 5, 5, 5, 5, 0, -10,
+			-10, 0, 5, 0, 0, 0, 0, -10,
+			-20, -10, -10, -5, -5, -10, -10, -20 },
+			// king
+			{ -30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-20, -30, -30, -40, -40, -30, -30, -20,
+			-10, -20, -20, -20, -20, -20, -20, -10,
+			20, 20, 0, 0, 0, 0, 20, 20,
+			20, 30, 10, 0, 0, 10, 30, 20 } };
+
+	public int evaluate(ChessMatch chessMatch) {
+		int score = side(chessMatch, Color.WHITE) - side(chessMatch, Color.BLACK);
+		return chessMatch.getCurrentPlayer() == Color.WHITE ? score : -score;
+	}
+
+	private int side(ChessMatch chessMatch, Color color) {
+		int score = 0;
+		int mirror = color == Color.WHITE ? 0 : 56;
+		for (int type = ChessBoard.PAWN; type <= ChessBoard.KING; type++) {
+			long pieces = chessMatch.getBitboard(color, type);
+			score += Long.bitCount(pieces) * PIECE_VALUES[type];
+			while (pieces != 0) {
+				score += TABLES[type][Long.numberOfTrailingZeros(pieces) ^ mirror];
+				pieces &= pieces - 1;
+			}
+		}
+		return score;
+	}
+}
@@ -0,0 +1,146 @@
+package chess.engine;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import chess.ChessMatch;
+import chess.archive.OpeningBook;
+import chess.tablebase.Tablebases;
+
+/*
+ * Lazy SMP: every thread runs its own iterative deepening search on a copy of
+ * the match, and all of them share one transposition table, so results found
+ * by one thread cut the search of the others short. Helper threads start one
+ * ply deeper every other thread to spread the work over more depths. The
+ * answer is the one of the first thread, which also decides when to stop.
+ *
+ * The first thread is the caller's; the helpers come from a pool created with
+ * the search and reused by every call, until close() shuts it down.
+ */
+public class ParallelSearch implements AutoCloseable {
+
+	private ChessMatch chessMatch;
+	private TranspositionTable table;
+	private OpeningBook book;
+	private Tablebases tablebases;
+	private int threads;
+	private long nodes;
+	private ExecutorService helpers;
+	private boolean closed;
+
+	public ParallelSearch(ChessMatch chessMatch, int threads, TranspositionTable table) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("There must be at least 1 search thread");
+		}
+		this.chessMatch = chessMatch;
+		this.threads = threads;
+		this.table = table;
+		if (threads > 1) {
+			AtomicInteger count = new AtomicInteger();
+			helpers = Executors.newFixedThreadPool(threads - 1, runnable -> {
+				Thread thread = new Thread(runnable, "search-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	public ParallelSearch(ChessMatch chessMatch, int threads) {
+		this(chessMatch, threads, new TranspositionTable(Search.DEFAULT_HASH_MB));
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public OpeningBook getOpeningBook() {
+		return book;
+	}
+
+	// the book to consult before searching, or null for none
+	public void setOpeningBook(OpeningBook book) {
+		this.book = book;
+	}
+
+	public Tablebases getTablebases() {
+		return tablebases;
+	}
+
+	// the endgame tablebases to consult before searching, or null for none
+	public void setTablebases(Tablebases tablebases) {
+		this.tablebases = tablebases;
+	}
+
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	// nodes visited by all threads in the last search
+	public long getNodes() {
+		return nodes;
+	}
+
+	public SearchResult search(long timeMillis) {
+		return search(Search.MAX_PLY, timeMillis, Long.MAX_VALUE);
+	}
+
+	/*
+	 * Searches with all threads until the first one reaches maxDepth, runs out
+	 * of time or the threads together have visited maxNodes nodes.
+	 */
+	public SearchResult search(int maxDepth, long timeMillis, long maxNodes) {
+		SearchResult known = Search.probe(book, tablebases, chessMatch);
+		if (known != null) {
+			nodes = 0;
+			return known;
+		}
+		if (closed) {
+			throw new IllegalStateException("The search has been closed");
+		}
+		table.newSearch();
+		Search[] searches = new Search[threads];
+		for (int i = 0; i < threads; i++) {
+			searches[i] = new Search(chessMatch.copy(), table);
+		}
+		long workerNodes = maxNodes == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(1, maxNodes / threads);
+
+		Future<?>[] running = new Future<?>[threads - 1];
+		for (int i = 1; i < threads; i++) {
+			Search helper = searches[i];
+			int startDepth = 1 + (i & 1);
+			running[i - 1] = helpers.submit(() -> helper.iterate(startDepth, maxDepth, timeMillis, workerNodes));
+		}
+
+		SearchResult result = searches[0].iterate(1, maxDepth, timeMillis, workerNodes);
+
+		for (int i = 1; i < threads; i++) {
+			searches[i].stop();
+		}
+		long total = searches[0].getNodes();
+		for (int i = 1; i < threads; i++) {
+			try {
+				running[i - 1].get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Search thread " + i + " failed", e.getCause());
+			}
+			total += searches[i].getNodes();
+		}
+		nodes = total;
+		return new SearchResult(result.getMove(), result.getScore(), result.getDepth(), total,
+				result.getElapsedMillis(), result.getPrincipalVariation());
+	}
+
+	// stops the helper threads; the search cannot be used afterwards
+	@Override
+	public void close() {
+		closed = true;
+		if (helpers != null) {
+			helpers.shutdownNow();
+		}
+	}
+}
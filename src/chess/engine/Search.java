@@ -0,0 +1,421 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+import chess.archive.OpeningBook;
+import chess.tablebase.TablebaseResult;
+import chess.tablebase.Tablebases;
+
+/*
+ * Negamax alpha-beta search with iterative deepening. Each iteration follows
+ * the principal variation of the previous one first, then the best move
+ * remembered in the transposition table; captures are ordered by
+ * most valuable victim / least valuable attacker and quiet moves that caused
+ * a cutoff are tried early (killer moves). The search stops when the time or
+ * node budget runs out and answers with the last completed iteration.
+ *
+ * When an opening book or endgame tablebases are set, a position found in
+ * them is answered at once, without searching.
+ *
+ * A Search plays moves on the ChessMatch it was given and takes them all back
+ * before returning, so the match must not be used by other threads meanwhile.
+ */
+public class Search {
+
+	public static final int MAX_PLY = 128;
+	public static final int MATE = 32000;
+	public static final int INFINITY = 32001;
+
+	// budget checks are done once every this many nodes
+	private static final int CHECK_INTERVAL = 1024;
+
+	public static final int DEFAULT_HASH_MB = 16;
+
+	private static final int PV_SCORE = 1_000_000;
+	private static final int HASH_MOVE_SCORE = 500_000;
+	private static final int CAPTURE_SCORE = 100_000;
+	private static final int PROMOTION_SCORE = 90_000;
+	private static final int KILLER_SCORE = 80_000;
+
+	private ChessMatch chessMatch;
+	private Evaluation evaluation = new Evaluation();
+	private TranspositionTable table;
+	private OpeningBook book;
+	private Tablebases tablebases;
+
+	private MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+	private int[][] moveScores = new int[MAX_PLY + 1][];
+	private int[][] killers = new int[MAX_PLY + 1][2];
+
+	// triangular principal variation table
+	private int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+	private int[] pvLength = new int[MAX_PLY + 1];
+	private int[] previousPv = new int[0];
+	private boolean followPv;
+
+	private int rootDepth;
+	private int rootScore;
+	private long nodes;
+	private long maxNodes;
+	private long deadline;
+	private volatile boolean stopped;
+
+	public Search(ChessMatch chessMatch) {
+		this(chessMatch, new TranspositionTable(DEFAULT_HASH_MB));
+	}
+
+	public Search(ChessMatch chessMatch, TranspositionTable table) {
+		this.chessMatch = chessMatch;
+		this.table = table;
+		for (int i = 0; i < moveLists.length; i++) {
+			moveLists[i] = new MoveList();
+			moveScores[i] = new int[256];
+		}
+	}
+
+	public SearchResult search(long timeMillis) {
+		return search(MAX_PLY, timeMillis, Long.MAX_VALUE);
+	}
+
+	/*
+	 * Searches the position of the match up to maxDepth plies, giving up when
+	 * timeMillis have passed or maxNodes nodes have been visited (use
+	 * Long.MAX_VALUE for no limit).
+	 */
+	public SearchResult search(int maxDepth, long timeMillis, long maxNodes) {
+		SearchResult known = probe(book, tablebases, chessMatch);
+		if (known != null) {
+			return known;
+		}
+		table.newSearch();
+		stopped = false;
+		return iterate(1, maxDepth, timeMillis, maxNodes);
+	}
+
+	// iterative deepening from startDepth, without touching the table age or a pending stop request
+	SearchResult iterate(int startDepth, int maxDepth, long timeMillis, long maxNodes) {
+		if (maxDepth < 1 || maxDepth > MAX_PLY) {
+			throw new IllegalArgumentException("Search depth must be between 1 and " + MAX_PLY);
+		}
+		long start = System.nanoTime();
+		long budget = Math.max(0, Math.min(timeMillis, Long.MAX_VALUE / 1_000_000L)) * 1_000_000L;
+		// a budget too long to add saturates instead of wrapping round to a deadline in the past
+		this.deadline = start + budget < start ? Long.MAX_VALUE : start + budget;
+		this.maxNodes = maxNodes;
+		this.nodes = 0;
+		this.previousPv = new int[0];
+		for (int[] killer : killers) {
+			killer[0] = Move.NONE;
+			killer[1] = Move.NONE;
+		}
+
+		MoveList rootMoves = new MoveList();
+		chessMatch.generateLegalMoves(rootMoves);
+		if (rootMoves.isEmpty()) {
+			int score = chessMatch.getCheck() ? -MATE : 0;
+			return new SearchResult(Move.NONE, score, 0, 0, 0, new int[0]);
+		}
+
+		SearchResult result = new SearchResult(rootMoves.get(0), 0, 0, 0, 0, new int[] { rootMoves.get(0) });
+		for (int depth = Math.min(startDepth, maxDepth); depth <= maxDepth && !stopped; depth++) {
+			followPv = true;
+			rootDepth = depth;
+			alphaBeta(depth, 0, -INFINITY, INFINITY);
+			// a search cut short is only trusted when it already improved on the previous best move
+			if (stopped && (pvLength[0] == 0 || pvTable[0][0] == result.getMove())) {
+				break;
+			}
+			int score = rootScore;
+			previousPv = new int[pvLength[0]];
+			System.arraycopy(pvTable[0], 0, previousPv, 0, pvLength[0]);
+			long elapsed = (System.nanoTime() - start) / 1_000_000L;
+			result = new SearchResult(previousPv[0], score, depth, nodes, elapsed, previousPv);
+			if (Math.abs(score) >= MATE - depth) {
+				break;
+			}
+		}
+		return new SearchResult(result.getMove(), result.getScore(), result.getDepth(), nodes,
+				(System.nanoTime() - start) / 1_000_000L, result.getPrincipalVariation());
+	}
+
+	// the book or tablebase move of the position, or null when neither knows it
+	static SearchResult probe(OpeningBook book, Tablebases tablebases, ChessMatch chessMatch) {
+		long start = System.nanoTime();
+		if (book != null) {
+			int move = book.bestMove(chessMatch);
+			if (move != Move.NONE) {
+				return SearchResult.ofBookMove(move, (System.nanoTime() - start) / 1_000_000L);
+			}
+		}
+		if (tablebases != null) {
+			TablebaseResult result = tablebases.probe(chessMatch);
+			int move = result == null ? Move.NONE : tablebases.bestMove(chessMatch);
+			if (move != Move.NONE) {
+				int score = result.isDraw() ? 0
+						: result.isWin() ? MATE - result.getDistanceToMate() : -MATE + result.getDistanceToMate();
+				return SearchResult.ofTablebaseMove(move, score, (System.nanoTime() - start) / 1_000_000L);
+			}
+		}
+		return null;
+	}
+
+	// asks a running search to return as soon as possible, e.g. from another thread
+	public void stop() {
+		stopped = true;
+	}
+
+	public OpeningBook getOpeningBook() {
+		return book;
+	}
+
+	// the book to consult before searching, or null for none
+	public void setOpeningBook(OpeningBook book) {
+		this.book = book;
+	}
+
+	public Tablebases getTablebases() {
+		return tablebases;
+	}
+
+	// the endgame tablebases to consult before searching, or null for none
+	public void setTablebases(Tablebases tablebases) {
+		this.tablebases = tablebases;
+	}
+
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	private int alphaBeta(int depth, int ply, int alpha, int beta) {
+		pvLength[ply] = 0;
+		if (depth <= 0 || ply >= MAX_PLY) {
+			return quiescence(ply, alpha, beta);
+		}
+		if (budgetExhausted()) {
+			return 0;
+		}
+		// a repetition is a draw, as the side that repeated can repeat again
+		if (ply > 0 && (chessMatch.getHalfmoveClock() >= ChessMatch.FIFTY_MOVE_PLIES || chessMatch.isRepetition())) {
+			return 0;
+		}
+
+		long key = chessMatch.getZobristKey();
+		long entry = table.probe(key);
+		int hashMove = Move.NONE;
+		if (entry != 0) {
+			hashMove = TranspositionTable.move(entry);
+			if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+				int score = fromTableScore(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+						|| (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+					return score;
+				}
+			}
+		}
+
+		MoveList moves = moveLists[ply];
+		moves.clear();
+		chessMatch.generateLegalMoves(moves);
+		if (moves.isEmpty()) {
+			return chessMatch.getCheck() ? -MATE + ply : 0;
+		}
+		scoreMoves(moves, ply, true, hashMove);
+
+		int originalAlpha = alpha;
+		int bestScore = -INFINITY;
+		int bestMove = Move.NONE;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = nextMove(moves, ply, i);
+			chessMatch.makeMove(move);
+			// a move that gives check is searched one ply deeper, up to twice the depth of the iteration
+			int extension = chessMatch.getCheck() && ply < 2 * rootDepth ? 1 : 0;
+			int score = -alphaBeta(depth - 1 + extension, ply + 1, -beta, -alpha);
+			chessMatch.unmakeMove();
+			// only the first move of a node can continue the previous principal variation
+			followPv = false;
+			if (stopped) {
+				return 0;
+			}
+
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = move;
+				if (score > alpha) {
+					alpha = score;
+					updatePv(ply, move);
+					if (ply == 0) {
+						rootScore = score;
+					}
+					if (alpha >= beta) {
+						if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+							storeKiller(ply, move);
+						}
+						break;
+					}
+				}
+			}
+		}
+
+		int bound = bestScore >= beta ? TranspositionTable.LOWER_BOUND
+				: bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+		table.store(key, bestMove, toTableScore(bestScore, ply), depth, bound);
+		return bestScore;
+	}
+
+	// mate scores are stored as distance from the stored position, not from the root
+	private static int toTableScore(int score, int ply) {
+		if (score >= MATE - MAX_PLY) {
+			return score + ply;
+		}
+		if (score <= -MATE + MAX_PLY) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	private static int fromTableScore(int score, int ply) {
+		if (score >= MATE - MAX_PLY) {
+			return score - ply;
+		}
+		if (score <= -MATE + MAX_PLY) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	// searches captures and promotions until the position is quiet, or every evasion when in check
+	private int quiescence(int ply, int alpha, int beta) {
+		pvLength[ply] = 0;
+		if (budgetExhausted()) {
+			return 0;
+		}
+		boolean inCheck = chessMatch.getCheck();
+		if (ply >= MAX_PLY) {
+			return inCheck ? 0 : evaluation.evaluate(chessMatch);
+		}
+
+		int bestScore = -INFINITY;
+		if (!inCheck) {
+			bestScore = evaluation.evaluate(chessMatch);
+			if (bestScore >= beta) {
+				return bestScore;
+			}
+			if (bestScore > alpha) {
+				alpha = bestScore;
+			}
+		}
+
+		MoveList moves = moveLists[ply];
+		moves.clear();
+		chessMatch.generateLegalMoves(moves);
+		if (moves.isEmpty()) {
+			return inCheck ? -MATE + ply : 0;
+		}
+		scoreMoves(moves, ply, false, Move.NONE);
+
+		for (int i = 0; i < moves.size(); i++) {
+			int move = nextMove(moves, ply, i);
+			if (!inCheck && !Move.isCapture(move) && !Move.isPromotion(move)) {
+				// moves are sorted, so only quiet moves are left
+				break;
+			}
+			chessMatch.makeMove(move);
+			int score = -quiescence(ply + 1, -beta, -alpha);
+			chessMatch.unmakeMove();
+			if (stopped) {
+				return 0;
+			}
+
+			if (score > bestScore) {
+				bestScore = score;
+				if (score > alpha) {
+					alpha = score;
+					updatePv(ply, move);
+					if (alpha >= beta) {
+						break;
+					}
+				}
+			}
+		}
+		return bestScore;
+	}
+
+	private boolean budgetExhausted() {
+		nodes++;
+		if (nodes >= maxNodes || (nodes % CHECK_INTERVAL == 0 && System.nanoTime() >= deadline)) {
+			stopped = true;
+		}
+		return stopped;
+	}
+
+	private void scoreMoves(MoveList moves, int ply, boolean usePv, int hashMove) {
+		int pvMove = Move.NONE;
+		if (usePv && followPv) {
+			if (ply < previousPv.length) {
+				pvMove = previousPv[ply];
+			}
+			followPv = false;
+		}
+		int[] scores = moveScores[ply];
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			int score = 0;
+			if (move == pvMove) {
+				score = PV_SCORE;
+				followPv = true;
+			} else if (move == hashMove) {
+				score = HASH_MOVE_SCORE;
+			} else if (Move.isCapture(move) || Move.isEnPassant(move)) {
+				int victim = Move.isEnPassant(move) ? ChessBoard.PAWN
+						: ChessBoard.typeOf(chessMatch.getPieceCode(Move.to(move)));
+				int attacker = ChessBoard.typeOf(chessMatch.getPieceCode(Move.from(move)));
+				score = CAPTURE_SCORE + Evaluation.PIECE_VALUES[victim] * 10 - attacker + Move.promotion(move);
+			} else if (Move.isPromotion(move)) {
+				score = PROMOTION_SCORE + Move.promotion(move);
+			} else if (move == killers[ply][0]) {
+				score = KILLER_SCORE + 1;
+			} else if (move == killers[ply][1]) {
+				score = KILLER_SCORE;
+			}
+			scores[i] = score;
+		}
+	}
+
+	// selection sort step: swaps the best remaining move into place i
+	private int nextMove(MoveList moves, int ply, int i) {
+		int[] scores = moveScores[ply];
+		int best = i;
+		for (int j = i + 1; j < moves.size(); j++) {
+			if (scores[j] > scores[best]) {
+				best = j;
+			}
+		}
+		if (best != i) {
+			moves.swap(i, best);
+			int score = scores[i];
+			scores[i] = scores[best];
+			scores[best] = score;
+		}
+		return moves.get(i);
+	}
+
+	private void storeKiller(int ply, int move) {
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+	}
+
+	private void updatePv(int ply, int move) {
+		pvTable[ply][0] = move;
+		System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+		pvLength[ply] = pvLength[ply + 1] + 1;
+	}
+}
@@ -0,0 +1,115 @@
+package chess.engine;
+
+import chess.ChessPosition;
+import chess.Move;
+
+/*
+ * Outcome of a search: the best move as the source and target positions that
+ * ChessMatch.performChessMove takes, plus the promotion piece ("Q", "R", "B",
+ * "N" or null) to hand to replacePromotedPiece.
+ */
+public class SearchResult {
+
+	private int move;
+	private int score;
+	private int depth;
+	private long nodes;
+	private long elapsedMillis;
+	private int[] principalVariation;
+	private boolean bookMove;
+	private boolean tablebaseMove;
+
+	public SearchResult(int move, int score, int depth, long nodes, long elapsedMillis, int[] principalVariation) {
+		this.move = move;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.elapsedMillis = elapsedMillis;
+		this.principalVariation = principalVariation;
+	}
+
+	// a move taken from the opening book, without searching
+	static SearchResult ofBookMove(int move, long elapsedMillis) {
+		SearchResult result = new SearchResult(move, 0, 0, 0, elapsedMillis, new int[] { move });
+		result.bookMove = true;
+		return result;
+	}
+
+	public boolean hasMove() {
+		return move != Move.NONE;
+	}
+
+	public int getMove() {
+		return move;
+	}
+
+	public ChessPosition getSource() {
+		return toChessPosition(Move.from(move));
+	}
+
+	public ChessPosition getTarget() {
+		return toChessPosition(Move.to(move));
+	}
+
+	public String getPromotion() {
+		return Move.isPromotion(move) ? String.valueOf("PNBRQK".charAt(Move.promotion(move))) : null;
+	}
+
+	// a move taken from the endgame tablebases, scored as the exact distance to mate
+	static SearchResult ofTablebaseMove(int move, int score, long elapsedMillis) {
+		SearchResult result = new SearchResult(move, score, 0, 0, elapsedMillis, new int[] { move });
+		result.tablebaseMove = true;
+		return result;
+	}
+
+	public boolean isBookMove() {
+		return bookMove;
+	}
+
+	public boolean isTablebaseMove() {
+		return tablebaseMove;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public boolean isMateScore() {
+		return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public int[] getPrincipalVariation() {
+		return principalVariation.clone();
+	}
+
+	private static ChessPosition toChessPosition(int square) {
+		return ChessPosition.of(square);
+	}
+
+	@Override
+	public String toString() {
+		if (bookMove) {
+			return "book " + Move.toString(move);
+		}
+		if (tablebaseMove) {
+			return "tablebase " + Move.toString(move) + " score " + score;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int pvMove : principalVariation) {
+			sb.append(' ').append(Move.toString(pvMove));
+		}
+		return "depth " + depth + " score " + score + " nodes " + nodes + " time " + elapsedMillis + " pv" + sb;
+	}
+}
@@ -0,0 +1,146 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/*
+ * Fixed-size hash table of search results, keyed by the Zobrist key of the
+ * position. Entries are two longs, the key xor'ed with the data and the data
+ * itself, so a reader racing with a writer sees a key mismatch instead of a
+ * torn entry and the table can be shared by search threads without locking.
+ *
+ * Four entries make a 64-byte bucket. A new result replaces the entry of the
+ * same position or, failing that, the shallowest entry of the bucket, where
+ * entries left over from earlier searches count as shallower.
+ */
+public class TranspositionTable {
+
+	public static final int EXACT = 3;
+	public static final int LOWER_BOUND = 1;
+	public static final int UPPER_BOUND = 2;
+
+	public static final int MAX_SIZE_MB = 8192;
+
+	private static final int BUCKET_ENTRIES = 4;
+	private static final int BUCKET_LONGS = BUCKET_ENTRIES * 2;
+	private static final int AGE_WEIGHT = 8;
+
+	// data layout: move in bits 0-18, score + 32768 in bits 19-34, depth in 35-42, bound in 43-44, age in 45-50
+	private static final int SCORE_SHIFT = 19;
+	private static final int DEPTH_SHIFT = 35;
+	private static final int BOUND_SHIFT = 43;
+	private static final int AGE_SHIFT = 45;
+	private static final int AGE_MASK = 0x3F;
+
+	private final long[] table;
+	private final long bucketMask;
+	private final int sizeMb;
+	private volatile int age;
+
+	public TranspositionTable(int sizeMb) {
+		if (sizeMb < 1 || sizeMb > MAX_SIZE_MB) {
+			throw new IllegalArgumentException("Transposition table size must be between 1 and " + MAX_SIZE_MB + " MB");
+		}
+		long buckets = Long.highestOneBit(sizeMb * 1024L * 1024L / (BUCKET_LONGS * Long.BYTES));
+		this.table = new long[(int) (buckets * BUCKET_LONGS)];
+		this.bucketMask = buckets - 1;
+		this.sizeMb = sizeMb;
+	}
+
+	public int getSizeMb() {
+		return sizeMb;
+	}
+
+	public int getEntries() {
+		return table.length / 2;
+	}
+
+	// marks the start of a new search, so entries of older searches are replaced first
+	public void newSearch() {
+		age = (age + 1) & AGE_MASK;
+	}
+
+	public void clear() {
+		Arrays.fill(table, 0L);
+		age = 0;
+	}
+
+	/*
+	 * Returns the data stored for the key, to be read with move(), score(),
+	 * depth() and bound(), or 0 when the position is not in the table.
+	 */
+	public long probe(long key) {
+		int bucket = bucket(key);
+		for (int i = bucket; i < bucket + BUCKET_LONGS; i += 2) {
+			long data = table[i + 1];
+			if (data != 0 && (table[i] ^ data) == key) {
+				return data;
+			}
+		}
+		return 0;
+	}
+
+	public void store(long key, int move, int score, int depth, int bound) {
+		int bucket = bucket(key);
+		int currentAge = age;
+		int replace = bucket;
+		int replaceWorth = Integer.MAX_VALUE;
+		for (int i = bucket; i < bucket + BUCKET_LONGS; i += 2) {
+			long data = table[i + 1];
+			if (data == 0 || (table[i] ^ data) == key) {
+				// keep the best move of a position when the new result has none
+				if (data != 0 && move == 0) {
+					move = move(data);
+				}
+				replace = i;
+				break;
+			}
+			int worth = depth(data) - AGE_WEIGHT * ((currentAge - age(data)) & AGE_MASK);
+			if (worth < replaceWorth) {
+				replaceWorth = worth;
+				replace = i;
+			}
+		}
+		long data = (move & 0x7FFFFL) | ((long) (score + 32768) & 0xFFFF) << SCORE_SHIFT
+				| ((long) depth & 0xFF) << DEPTH_SHIFT | ((long) bound) << BOUND_SHIFT
+				| ((long) currentAge) << AGE_SHIFT;
+		table[replace] = key ^ data;
+		table[replace + 1] = data;
+	}
+
+	// permill of a sample of entries written during the current search
+	public int hashfull() {
+		int used = 0;
+		int sample = Math.min(1000, table.length / 2);
+		for (int i = 0; i < sample; i++) {
+			long data = table[i * 2 + 1];
+			if (data != 0 && age(data) == age) {
+				used++;
+			}
+		}
+		return used * 1000 / sample;
+	}
+
+	public static int move(long data) {
+		return (int) (data & 0x7FFFF);
+	}
+
+	public static int score(long data) {
+		return (int) ((data >>> SCORE_SHIFT) & 0xFFFF) - 32768;
+	}
+
+	public static int depth(long data) {
+		return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+	}
+
+	public static int bound(long data) {
+		return (int) ((data >>> BOUND_SHIFT) & 0x3);
+	}
+
+	private static int age(long data) {
+		return (int) ((data >>> AGE_SHIFT) & AGE_MASK);
+	}
+
+	private int bucket(long key) {
+		return (int) (key & bucketMask) * BUCKET_LONGS;
+	}
+}
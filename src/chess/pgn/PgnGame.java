@@ -0,0 +1,66 @@
+package chess.pgn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * One game read from a PGN file: its tag pairs, the moves of the main line in
+ * SAN and the result. The moves resolved against the board by PgnImporter
+ * are kept as packed ints (see chess.Move).
+ */
+public class PgnGame {
+
+	private Map<String, String> tags = new LinkedHashMap<>();
+	private List<String> sanMoves = new ArrayList<>();
+	private String result = "*";
+	private int[] moves;
+
+	public Map<String, String> getTags() {
+		return Collections.unmodifiableMap(tags);
+	}
+
+	public String getTag(String name) {
+		return tags.get(name);
+	}
+
+	public List<String> getSanMoves() {
+		return Collections.unmodifiableList(sanMoves);
+	}
+
+	public String getResult() {
+		return result;
+	}
+
+	// FEN of the starting position, or null for the standard one
+	public String getStartFen() {
+		return tags.get("FEN");
+	}
+
+	// moves as packed ints, or null until the game has been replayed
+	public int[] getMoves() {
+		return moves;
+	}
+
+	void addTag(String name, String value) {
+		tags.put(name, value);
+	}
+
+	void addSanMove(String san) {
+		sanMoves.add(san);
+	}
+
+	void setResult(String result) {
+		this.result = result;
+	}
+
+	void setMoves(int[] moves) {
+		this.moves = moves;
+	}
+
+	boolean isEmpty() {
+		return tags.isEmpty() && sanMoves.isEmpty();
+	}
+}
@@ -0,0 +1,146 @@
+package chess.pgn;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.MoveList;
+
+/*
+ * Reads games from a PGN stream, replays their moves on a ChessMatch and
+ * hands every game that replays cleanly to a handler. Games with illegal or
+ * unreadable moves are counted and skipped. In parallel mode one thread reads
+ * the stream and worker threads replay complete games taken from a bounded
+ * queue, so memory use stays the same whatever the size of the input.
+ */
+public class PgnImporter {
+
+	private static final int QUEUED_GAMES_PER_THREAD = 64;
+
+	private AtomicLong imported = new AtomicLong();
+	private AtomicLong failed = new AtomicLong();
+
+	public long getImported() {
+		return imported.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/*
+	 * Replays the game from its starting position (the FEN tag, if any),
+	 * storing the resolved moves in it, and returns the final position.
+	 */
+	public static ChessMatch replay(PgnGame game, MoveList moves) {
+		String fen = game.getStartFen();
+		ChessMatch chessMatch = fen == null ? new ChessMatch() : new ChessMatch(fen);
+		int[] resolved = new int[game.getSanMoves().size()];
+		int i = 0;
+		for (String san : game.getSanMoves()) {
+			resolved[i] = San.parse(chessMatch, san, moves);
+			chessMatch.makeMove(resolved[i]);
+			i++;
+		}
+		game.setMoves(resolved);
+		return chessMatch;
+	}
+
+	public long importGames(Reader in, Consumer<PgnGame> handler) throws IOException {
+		PgnReader reader = new PgnReader(in);
+		MoveList moves = new MoveList();
+		long count = 0;
+		PgnGame game;
+		while ((game = reader.next()) != null) {
+			if (replay(game, moves, handler)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * Same as importGames(in, handler), with the replay spread over the given
+	 * number of threads. The handler is called from the worker threads, in no
+	 * particular order, and must be thread-safe.
+	 */
+	public long importGames(Reader in, Consumer<PgnGame> handler, int threads) throws IOException {
+		if (threads <= 1) {
+			return importGames(in, handler);
+		}
+		BlockingQueue<PgnGame> queue = new ArrayBlockingQueue<>(threads * QUEUED_GAMES_PER_THREAD);
+		PgnGame end = new PgnGame();
+		AtomicLong count = new AtomicLong();
+		AtomicReference<RuntimeException> error = new AtomicReference<>();
+
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Thread(() -> {
+				MoveList moves = new MoveList();
+				try {
+					PgnGame game;
+					while ((game = queue.take()) != end) {
+						if (error.get() == null && replay(game, moves, handler)) {
+							count.incrementAndGet();
+						}
+					}
+					// let the other workers see the end as well
+					queue.put(end);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (RuntimeException e) {
+					error.compareAndSet(null, e);
+					queue.clear();
+					queue.offer(end);
+				}
+			}, "pgn-import-" + i);
+			workers[i].start();
+		}
+
+		try {
+			try {
+				PgnReader reader = new PgnReader(in);
+				PgnGame game;
+				while (error.get() == null && (game = reader.next()) != null) {
+					queue.put(game);
+				}
+			} finally {
+				// also when the stream fails, so the workers drain the queue and stop before the error is thrown
+				queue.put(end);
+				for (Thread worker : workers) {
+					worker.join();
+				}
+			}
+		} catch (InterruptedException e) {
+			for (Thread worker : workers) {
+				worker.interrupt();
+			}
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("PGN import interrupted");
+		}
+		if (error.get() != null) {
+			throw error.get();
+		}
+		return count.get();
+	}
+
+	private boolean replay(PgnGame game, MoveList moves, Consumer<PgnGame> handler) {
+		try {
+			replay(game, moves);
+		} catch (ChessException | IllegalStateException e) {
+			// illegal moves, or a FEN tag that is not a legal position
+			failed.incrementAndGet();
+			return false;
+		}
+		imported.incrementAndGet();
+		handler.accept(game);
+		return true;
+	}
+}
@@ -0,0 +1,214 @@
+package chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/*
+ * Streaming PGN reader: next() returns one game at a time, so memory use
+ * depends on the longest game and not on the size of the file. Comments,
+ * variations, NAGs and move numbers are skipped; only the main line is kept.
+ */
+public class PgnReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private Reader in;
+	private char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	private StringBuilder token = new StringBuilder();
+	private long gamesRead;
+
+	public PgnReader(Reader in) {
+		this.in = in;
+	}
+
+	public long getGamesRead() {
+		return gamesRead;
+	}
+
+	// the next game of the stream, or null at the end
+	public PgnGame next() throws IOException {
+		PgnGame game = new PgnGame();
+		boolean inMoves = false;
+		int newlines = 0;
+		int c;
+		while ((c = peek()) != -1) {
+			if (Character.isWhitespace(c)) {
+				if (c == '\n') {
+					newlines++;
+				}
+				position++;
+				continue;
+			}
+			if (c == '[') {
+				// a game without a result token ends where the next one starts
+				if (inMoves || (!game.isEmpty() && newlines > 1)) {
+					break;
+				}
+				position++;
+				readTag(game);
+			} else if (c == '{') {
+				skipUntil('}');
+			} else if (c == ';') {
+				skipUntil('\n');
+			} else if (c == '(') {
+				skipVariation();
+			} else if (c == '%' && isLineStart()) {
+				skipUntil('\n');
+			} else {
+				inMoves = true;
+				String symbol = readSymbol();
+				if (isResult(symbol)) {
+					game.setResult(symbol);
+					break;
+				}
+				String san = stripMoveNumber(symbol);
+				if (!san.isEmpty() && !san.equals("e.p.")) {
+					game.addSanMove(san);
+				}
+			}
+			newlines = 0;
+		}
+		if (game.isEmpty()) {
+			return null;
+		}
+		gamesRead++;
+		return game;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private void readTag(PgnGame game) throws IOException {
+		token.setLength(0);
+		int c;
+		while ((c = read()) != -1 && !Character.isWhitespace(c) && c != ']' && c != '"') {
+			token.append((char) c);
+		}
+		String name = token.toString();
+		token.setLength(0);
+		while (c != -1 && c != '"' && c != ']') {
+			c = read();
+		}
+		if (c == '"') {
+			while ((c = read()) != -1 && c != '"') {
+				if (c == '\\') {
+					c = read();
+					if (c == -1) {
+						break;
+					}
+				}
+				token.append((char) c);
+			}
+			while (c != -1 && c != ']') {
+				c = read();
+			}
+		}
+		if (!name.isEmpty()) {
+			game.addTag(name, token.toString());
+		}
+	}
+
+	private String readSymbol() throws IOException {
+		token.setLength(0);
+		int c;
+		while ((c = peek()) != -1 && !Character.isWhitespace(c) && "{}()[];$".indexOf(c) < 0) {
+			token.append((char) c);
+			position++;
+		}
+		if (token.length() == 0 && c != -1) {
+			// a numeric annotation glyph, or a stray bracket that is skipped
+			position++;
+			if (c == '$') {
+				while ((c = peek()) != -1 && Character.isDigit(c)) {
+					position++;
+				}
+			}
+		}
+		return token.toString();
+	}
+
+	private void skipUntil(char end) throws IOException {
+		int c;
+		while ((c = read()) != -1 && c != end) {
+		}
+	}
+
+	// variations can nest and contain comments with brackets of their own
+	private void skipVariation() throws IOException {
+		int depth = 0;
+		int c;
+		while ((c = read()) != -1) {
+			if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				if (--depth == 0) {
+					return;
+				}
+			} else if (c == '{') {
+				skipUntil('}');
+			} else if (c == ';') {
+				skipUntil('\n');
+			}
+		}
+	}
+
+	private static boolean isResult(String symbol) {
+		return symbol.equals("1-0") || symbol.equals("0-1") || symbol.equals("1/2-1/2") || symbol.equals("*");
+	}
+
+	// "12.", "12..." and "12.e4" all carry a move number in front
+	private static String stripMoveNumber(String symbol) {
+		int i = 0;
+		while (i < symbol.length() && Character.isDigit(symbol.charAt(i))) {
+			i++;
+		}
+		if (i > 0 && (i == symbol.length() || symbol.charAt(i) != '.')) {
+			// a bare number is skipped, while "0-0" is castling
+			return i == symbol.length() ? "" : symbol;
+		}
+		while (i < symbol.length() && symbol.charAt(i) == '.') {
+			i++;
+		}
+		return symbol.substring(i);
+	}
+
+	private boolean isLineStart() {
+		return position == 0 || buffer[position - 1] == '\n';
+	}
+
+	private int peek() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position];
+	}
+
+	private int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position++];
+	}
+
+	private boolean fill() throws IOException {
+		// keep the last character so isLineStart still works across refills
+		if (limit > 0) {
+			buffer[0] = buffer[limit - 1];
+			position = 1;
+		} else {
+			position = 0;
+		}
+		int count = in.read(buffer, position, buffer.length - position);
+		if (count <= 0) {
+			limit = position;
+			return false;
+		}
+		limit = position + count;
+		return true;
+	}
+}
@@ -0,0 +1,165 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+
+/*
+ * Standard Algebraic Notation. A SAN move is resolved by matching it against
+ * the legal moves of the position, so disambiguation only has to be as
+ * precise as the notation itself.
+ */
+public final class San {
+
+	private San() {
+	}
+
+	/*
+	 * Finds the legal move of the side to move written as san (e.g. "Nbd7",
+	 * "exd6", "e8=Q+", "O-O"), using moves as a scratch buffer.
+	 */
+	public static int parse(ChessMatch chessMatch, String san, MoveList moves) {
+		moves.clear();
+		chessMatch.generateLegalMoves(moves);
+
+		String text = stripSuffixes(san);
+		if (text.equals("O-O") || text.equals("0-0") || text.equals("O-O-O") || text.equals("0-0-0")) {
+			int column = text.length() == 3 ? 6 : 2;
+			for (int i = 0; i < moves.size(); i++) {
+				int move = moves.get(i);
+				if (Move.isCastling(move) && ChessBoard.column(Move.to(move)) == column) {
+					return move;
+				}
+			}
+			throw new ChessException("Illegal move " + san);
+		}
+
+		int end = text.length();
+		int promotion = 0;
+		if (end >= 2 && "NBRQ".indexOf(text.charAt(end - 1)) >= 0) {
+			promotion = "PNBRQK".indexOf(text.charAt(end - 1));
+			end--;
+			if (text.charAt(end - 1) == '=') {
+				end--;
+			}
+		}
+		if (end < 2) {
+			throw new ChessException("Invalid move " + san);
+		}
+		int toColumn = text.charAt(end - 2) - 'a';
+		int toRow = '8' - text.charAt(end - 1);
+		if (toColumn < 0 || toColumn > 7 || toRow < 0 || toRow > 7) {
+			throw new ChessException("Invalid move " + san);
+		}
+		int to = ChessBoard.square(toRow, toColumn);
+
+		int start = 0;
+		int type = ChessBoard.PAWN;
+		if (start < end && "NBRQK".indexOf(text.charAt(start)) >= 0) {
+			type = "PNBRQK".indexOf(text.charAt(start));
+			start++;
+		}
+
+		// whatever is left between the piece and the target square narrows down the source
+		int fromColumn = -1;
+		int fromRow = -1;
+		for (int i = start; i < end - 2; i++) {
+			char c = text.charAt(i);
+			if (c >= 'a' && c <= 'h') {
+				fromColumn = c - 'a';
+			} else if (c >= '1' && c <= '8') {
+				fromRow = '8' - c;
+			} else if (c != 'x' && c != ':' && c != '-') {
+				throw new ChessException("Invalid move " + san);
+			}
+		}
+
+		int found = Move.NONE;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			int from = Move.from(move);
+			if (Move.to(move) != to || Move.promotion(move) != promotion
+					|| ChessBoard.typeOf(chessMatch.getPieceCode(from)) != type
+					|| (fromColumn >= 0 && ChessBoard.column(from) != fromColumn)
+					|| (fromRow >= 0 && ChessBoard.row(from) != fromRow)) {
+				continue;
+			}
+			if (found != Move.NONE) {
+				throw new ChessException("Ambiguous move " + san);
+			}
+			found = move;
+		}
+		if (found == Move.NONE) {
+			throw new ChessException("Illegal move " + san);
+		}
+		return found;
+	}
+
+	// SAN of a legal move of the side to move, using moves as a scratch buffer
+	public static String toSan(ChessMatch chessMatch, int move, MoveList moves) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int type = ChessBoard.typeOf(chessMatch.getPieceCode(from));
+		StringBuilder sb = new StringBuilder();
+		if (Move.isCastling(move)) {
+			sb.append(ChessBoard.column(to) == 6 ? "O-O" : "O-O-O");
+		} else {
+			boolean capture = Move.isCapture(move) || Move.isEnPassant(move);
+			if (type == ChessBoard.PAWN) {
+				if (capture) {
+					sb.append((char) ('a' + ChessBoard.column(from)));
+				}
+			} else {
+				sb.append("PNBRQK".charAt(type));
+				moves.clear();
+				chessMatch.generateLegalMoves(moves);
+				boolean ambiguous = false;
+				boolean sameColumn = false;
+				boolean sameRow = false;
+				for (int i = 0; i < moves.size(); i++) {
+					int other = moves.get(i);
+					int otherFrom = Move.from(other);
+					if (otherFrom != from && Move.to(other) == to
+							&& ChessBoard.typeOf(chessMatch.getPieceCode(otherFrom)) == type) {
+						ambiguous = true;
+						sameColumn |= ChessBoard.column(otherFrom) == ChessBoard.column(from);
+						sameRow |= ChessBoard.row(otherFrom) == ChessBoard.row(from);
+					}
+				}
+				if (ambiguous && (!sameColumn || sameRow)) {
+					sb.append((char) ('a' + ChessBoard.column(from)));
+				}
+				if (ambiguous && sameColumn) {
+					sb.append((char) ('8' - ChessBoard.row(from)));
+				}
+			}
+			if (capture) {
+				sb.append('x');
+			}
+			sb.append((char) ('a' + ChessBoard.column(to))).append((char) ('8' - ChessBoard.row(to)));
+			if (Move.isPromotion(move)) {
+				sb.append('=').append("PNBRQK".charAt(Move.promotion(move)));
+			}
+		}
+
+		chessMatch.makeMove(move);
+		if (chessMatch.getCheck()) {
+			moves.clear();
+			chessMatch.generateLegalMoves(moves);
+			sb.append(moves.isEmpty() ? '#' : '+');
+		}
+		chessMatch.unmakeMove();
+		return sb.toString();
+	}
+
+	// check, mate and annotation marks are not needed to find the move
+	private static String stripSuffixes(String san) {
+		int end = san.length();
+		while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+			end--;
+		}
+		return san.substring(0, end);
+	}
+}
@@ -1,9 +1,12 @@
 package chess.pieces;
 
 import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
+import chess.ChessBoard;
 import chess.ChessMatch;
 import chess.ChessPiece;
+import chess.Move;
+import chess.MoveList;
 import chess.color.Color;
 
 public class King extends ChessPiece {
@@ -15,14 +18,9 @@ public class King extends ChessPiece {
 		this.chessMatch = chessMatch;
 	}
 
-	private boolean canMove(Position position) {
-		ChessPiece p = (ChessPiece) getBoard().piece(position);
-		return (p == null || p.getColor() != getColor());
-	}
-
-	private boolean testRookCastling(Position position) {
-		ChessPiece p = (ChessPiece) getBoard().piece(position);
-		return p != null && p.getMoveCount() == 0 && p instanceof Rook && p.getColor() == getColor();
+	private boolean testRookCastling(int square) {
+		return getChessBoard().pieceCode(square) == ChessBoard.pieceCode(getColor(), ChessBoard.ROOK)
+				&& getChessBoard().piece(square).getMoveCount() == 0;
 	}
 
 	@Override
@@ -31,82 +29,40 @@ public class King extends ChessPiece {
 	}
 
 	@Override
-	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-		Position p = new Position(0, 0);
-
-		// above
-		p.setValues(position.getRow() - 1, position.getColumn());
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// below
-		p.setValues(position.getRow() + 1, position.getColumn());
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// left
-		p.setValues(position.getRow(), position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// right
-		p.setValues(position.getRow(), position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// nw
-		p.setValues(position.getRow() - 1, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// ne
-		p.setValues(position.getRow() - 1, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		// sw
-		p.setValues(position.getRow() + 1, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
+	public int getType() {
+		return ChessBoard.KING;
+	}
 
-		// se
-		p.setValues(position.getRow() + 1, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
+	@Override
+	public void generateMoves(MoveList moves) {
+		addMoves(moves, Attacks.KING[square()]);
 
 		// specialmove castling
 		if (getMoveCount() == 0 && !chessMatch.getCheck()) {
-			// kingside rook
-			Position positionRook1 = new Position(position.getRow(), position.getColumn() + 3);
-			if (testRookCastling(positionRook1)) {
-				Position p1 = new Position(position.getRow(), position.getColumn() + 1);
-				Position p2 = new Position(position.getRow(), position.getColumn() + 2);
-				if (!getBoard().thereIsAPiece(p1) && !getBoard().thereIsAPiece(p2)) {
-					mat[p2.getRow()][p2.getColumn()] = true;
+			ChessBoard board = getChessBoard();
+			int square = square();
+
+			// kingside rook; the king may not pass through an attacked square
+			if (position.getColumn() + 3 <= 7 && testRookCastling(square + 3)) {
+				if (!board.isOccupied(square + 1) && !board.isOccupied(square + 2)
+						&& !board.isAttacked(square + 1, opponentColor())) {
+					moves.add(Move.encode(square, square + 2, Move.CASTLING, 0));
 				}
 			}
 
 			// queenside rook
-			Position positionRook2 = new Position(position.getRow(), position.getColumn() - 4);
-			if (testRookCastling(positionRook2)) {
-				Position p1 = new Position(position.getRow(), position.getColumn() - 1);
-				Position p2 = new Position(position.getRow(), position.getColumn() - 2);
-				Position p3 = new Position(position.getRow(), position.getColumn() - 3);
-				if (!getBoard().thereIsAPiece(p1) && !getBoard().thereIsAPiece(p2) && !getBoard().thereIsAPiece(p3)) {
-					mat[p2.getRow()][p2.getColumn()] = true;
+			if (position.getColumn() - 4 >= 0 && testRookCastling(square - 4)) {
+				if (!board.isOccupied(square - 1) && !board.isOccupied(square - 2) && !board.isOccupied(square - 3)
+						&& !board.isAttacked(square - 1, opponentColor())) {
+					moves.add(Move.encode(square, square - 2, Move.CASTLING, 0));
 				}
 			}
 		}
+	}
 
-		return mat;
+	// castling needs the square next to the king free, so a king that can castle can also step
+	@Override
+	public boolean isThereAnyPossibleMove() {
+		return hasMoves(Attacks.KING[square()]);
 	}
 }
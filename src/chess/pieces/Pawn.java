@@ -1,9 +1,12 @@
 package chess.pieces;
 
 import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
+import chess.ChessBoard;
 import chess.ChessMatch;
 import chess.ChessPiece;
+import chess.Move;
+import chess.MoveList;
 import chess.color.Color;
 
 public class Pawn extends ChessPiece {
@@ -21,81 +24,80 @@ public class Pawn extends ChessPiece {
 	}
 
 	@Override
-	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-
-		Position p = new Position(0, 0);
+	public int getType() {
+		return ChessBoard.PAWN;
+	}
 
-		if (getColor() == Color.WHITE) {
-			p.setValues(position.getRow() - 1, position.getColumn());
-			if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
+	@Override
+	public void generateMoves(MoveList moves) {
+		ChessBoard board = getChessBoard();
+		int square = square();
+		int row = position.getRow();
+		int column = position.getColumn();
+		int direction = getColor() == Color.WHITE ? -1 : 1;
+		int next = square + 8 * direction;
+
+		if (row + direction < 0 || row + direction > 7) {
+			return;
+		}
 
-			p.setValues(position.getRow() - 2, position.getColumn());
-			Position p2 = new Position(position.getRow() - 1, position.getColumn());
-			if (getMoveCount() == 0 && getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)
-					&& getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2)) {
-				mat[p.getRow()][p.getColumn()] = true;
+		if (!board.isOccupied(next)) {
+			addPawnMove(moves, square, next, 0);
+			int twoAhead = next + 8 * direction;
+			if (getMoveCount() == 0 && row + 2 * direction >= 0 && row + 2 * direction <= 7
+					&& !board.isOccupied(twoAhead)) {
+				moves.add(Move.encode(square, twoAhead, Move.DOUBLE_PAWN_PUSH, 0));
 			}
+		}
 
-			p.setValues(position.getRow() - 1, position.getColumn() - 1);
-			if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
+		long captures = Attacks.PAWN[getColor().ordinal()][square] & board.pieces(opponentColor());
+		while (captures != 0) {
+			addPawnMove(moves, square, Long.numberOfTrailingZeros(captures), Move.CAPTURE);
+			captures &= captures - 1;
+		}
 
-			p.setValues(position.getRow() - 1, position.getColumn() + 1);
-			if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
+		// especial move en passant
+		if ((getColor() == Color.WHITE && row == 3) || (getColor() == Color.BLACK && row == 4)) {
+			ChessPiece vulnerable = chessMatch.getEnPassantVulnerable();
+			if (column > 0 && board.isOccupied(square - 1, opponentColor()) && board.piece(square - 1) == vulnerable) {
+				moves.add(Move.encode(square, next - 1, Move.EN_PASSANT, 0));
 			}
-
-			// especial move en passant
-			if (position.getRow() == 3) {
-				Position left = new Position(position.getRow(), position.getColumn() - 1);
-				if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable()) {
-					mat[left.getRow() - 1][left.getColumn()] = true;
-				}
-				Position right = new Position(position.getRow(), position.getColumn() + 1);
-				if (getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVulnerable()) {
-					mat[right.getRow() - 1][right.getColumn()] = true;
-				}
+			if (column < 7 && board.isOccupied(square + 1, opponentColor()) && board.piece(square + 1) == vulnerable) {
+				moves.add(Move.encode(square, next + 1, Move.EN_PASSANT, 0));
 			}
+		}
+	}
 
+	private void addPawnMove(MoveList moves, int from, int to, int flags) {
+		int row = ChessBoard.row(to);
+		if (row == 0 || row == 7) {
+			// special move promotion
+			moves.add(Move.encode(from, to, flags, ChessBoard.QUEEN));
+			moves.add(Move.encode(from, to, flags, ChessBoard.ROOK));
+			moves.add(Move.encode(from, to, flags, ChessBoard.BISHOP));
+			moves.add(Move.encode(from, to, flags, ChessBoard.KNIGHT));
 		} else {
-			p.setValues(position.getRow() + 1, position.getColumn());
-			if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-
-			p.setValues(position.getRow() + 2, position.getColumn());
-			Position p2 = new Position(position.getRow() + 1, position.getColumn());
-			if (getMoveCount() == 0 && getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)
-					&& getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-
-			p.setValues(position.getRow() + 1, position.getColumn() - 1);
-			if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-
-			p.setValues(position.getRow() + 1, position.getColumn() + 1);
-			if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
+			moves.add(Move.encode(from, to, flags, 0));
+		}
+	}
 
-			// especial move en passant
-			if (position.getRow() == 4) {
-				Position left = new Position(position.getRow(), position.getColumn() - 1);
-				if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable()) {
-					mat[left.getRow() + 1][left.getColumn()] = true;
-				}
-				Position right = new Position(position.getRow(), position.getColumn() + 1);
-				if (getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVulnerable()) {
-					mat[right.getRow() + 1][right.getColumn()] = true;
-				}
-			}
+	@Override
+	public boolean isThereAnyPossibleMove() {
+		ChessBoard board = getChessBoard();
+		int square = square();
+		int row = position.getRow();
+		int direction = getColor() == Color.WHITE ? -1 : 1;
+		if (row + direction < 0 || row + direction > 7) {
+			return false;
+		}
+		if (!board.isOccupied(square + 8 * direction)
+				|| (Attacks.PAWN[getColor().ordinal()][square] & board.pieces(opponentColor())) != 0) {
+			return true;
 		}
-		return mat;
+		ChessPiece vulnerable = chessMatch.getEnPassantVulnerable();
+		return vulnerable != null && vulnerable.getColor() != getColor()
+				&& ((getColor() == Color.WHITE && row == 3) || (getColor() == Color.BLACK && row == 4))
+				&& ((position.getColumn() > 0 && board.piece(square - 1) == vulnerable)
+						|| (position.getColumn() < 7 && board.piece(square + 1) == vulnerable));
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package chess.status;
+
+public enum GameStatus {
+
+	IN_PROGRESS,
+	CHECK,
+	CHECKMATE,
+	STALEMATE,
+	DRAW_BY_FIFTY_MOVES,
+	DRAW_BY_REPETITION;
+
+	public boolean isGameOver() {
+		return this != IN_PROGRESS && this != CHECK;
+	}
+
+	public boolean isDraw() {
+		return isGameOver() && this != CHECKMATE;
+	}
+}
@@ -0,0 +1,212 @@
+package chess.tablebase;
+
+import java.util.Arrays;
+
+import chess.ChessBoard;
+import chess.color.Color;
+
+/*
+ * The pieces of an endgame, written as in "KQK", "KBNK" or "KRKP": the white
+ * king and pieces, then the black king and pieces. Every piece has a slot,
+ * and a position of the endgame is the square of each slot: slot 0 is the
+ * white king, slot 1 the black king, then the white pieces and the black
+ * pieces, most valuable first.
+ *
+ * Tables are only kept for the canonical side of a material, the one where
+ * white has the stronger pieces; the other side is probed with the board
+ * mirrored and the colors swapped.
+ */
+public final class Material {
+
+	// kings included
+	public static final int MAX_PIECES = 4;
+
+	private static final String LETTERS = "PNBRQK";
+
+	private final int[] colors;
+	private final int[] types;
+	private final String name;
+
+	private Material(int[] white, int[] black) {
+		int slots = 2 + white.length + black.length;
+		colors = new int[slots];
+		types = new int[slots];
+		colors[0] = Color.WHITE.ordinal();
+		types[0] = ChessBoard.KING;
+		colors[1] = Color.BLACK.ordinal();
+		types[1] = ChessBoard.KING;
+		for (int i = 0; i < white.length; i++) {
+			colors[2 + i] = Color.WHITE.ordinal();
+			types[2 + i] = white[i];
+		}
+		for (int i = 0; i < black.length; i++) {
+			colors[2 + white.length + i] = Color.BLACK.ordinal();
+			types[2 + white.length + i] = black[i];
+		}
+		name = "K" + letters(white) + "K" + letters(black);
+	}
+
+	public static Material of(String name) {
+		if (name.length() < 2 || name.charAt(0) != 'K' || name.indexOf('K', 1) < 0) {
+			throw new IllegalArgumentException("Invalid material " + name);
+		}
+		int split = name.indexOf('K', 1);
+		return of(types(name.substring(1, split), name), types(name.substring(split + 1), name));
+	}
+
+	// white and black pieces other than the kings, as ChessBoard piece types
+	public static Material of(int[] white, int[] black) {
+		if (2 + white.length + black.length > MAX_PIECES) {
+			throw new IllegalArgumentException("Tablebases have at most " + MAX_PIECES + " pieces");
+		}
+		int[] sortedWhite = sorted(white);
+		int[] sortedBlack = sorted(black);
+		for (int type : sortedWhite) {
+			checkType(type);
+		}
+		for (int type : sortedBlack) {
+			checkType(type);
+		}
+		return new Material(sortedWhite, sortedBlack);
+	}
+
+	public int slots() {
+		return types.length;
+	}
+
+	public int color(int slot) {
+		return colors[slot];
+	}
+
+	public int type(int slot) {
+		return types[slot];
+	}
+
+	// en passant is not part of a table position, so only one side may have pawns
+	public boolean hasPawnsOnBothSides() {
+		boolean white = false;
+		boolean black = false;
+		for (int slot = 2; slot < types.length; slot++) {
+			if (types[slot] == ChessBoard.PAWN) {
+				white |= colors[slot] == Color.WHITE.ordinal();
+				black |= colors[slot] == Color.BLACK.ordinal();
+			}
+		}
+		return white && black;
+	}
+
+	public Material flip() {
+		return new Material(pieces(Color.BLACK), pieces(Color.WHITE));
+	}
+
+	// white has more pieces, or as many and the more valuable ones
+	public boolean isCanonical() {
+		int[] white = pieces(Color.WHITE);
+		int[] black = pieces(Color.BLACK);
+		if (white.length != black.length) {
+			return white.length > black.length;
+		}
+		for (int i = 0; i < white.length; i++) {
+			if (white[i] != black[i]) {
+				return white[i] > black[i];
+			}
+		}
+		return true;
+	}
+
+	public Material canonical() {
+		return isCanonical() ? this : flip();
+	}
+
+	/*
+	 * The slot of each of the given pieces (other than the kings, which are
+	 * always slots 0 and 1), with colors swapped when flip is set. Pieces of
+	 * the same kind take their slots in order.
+	 */
+	int[] slotsOf(int[] pieceColors, int[] pieceTypes, boolean flip) {
+		int[] slots = new int[pieceTypes.length];
+		boolean[] taken = new boolean[types.length];
+		for (int i = 0; i < pieceTypes.length; i++) {
+			int color = flip ? 1 - pieceColors[i] : pieceColors[i];
+			slots[i] = -1;
+			for (int slot = 0; slot < types.length && slots[i] < 0; slot++) {
+				if (!taken[slot] && colors[slot] == color && types[slot] == pieceTypes[i]) {
+					taken[slot] = true;
+					slots[i] = slot;
+				}
+			}
+			if (slots[i] < 0) {
+				throw new IllegalArgumentException("Piece not in " + name);
+			}
+		}
+		return slots;
+	}
+
+	private int[] pieces(Color color) {
+		int count = 0;
+		for (int slot = 2; slot < types.length; slot++) {
+			if (colors[slot] == color.ordinal()) {
+				count++;
+			}
+		}
+		int[] pieces = new int[count];
+		count = 0;
+		for (int slot = 2; slot < types.length; slot++) {
+			if (colors[slot] == color.ordinal()) {
+				pieces[count++] = types[slot];
+			}
+		}
+		return pieces;
+	}
+
+	private static int[] sorted(int[] types) {
+		int[] sorted = types.clone();
+		Arrays.sort(sorted);
+		for (int i = 0; i < sorted.length / 2; i++) {
+			int swap = sorted[i];
+			sorted[i] = sorted[sorted.length - 1 - i];
+			sorted[sorted.length - 1 - i] = swap;
+		}
+		return sorted;
+	}
+
+	private static void checkType(int type) {
+		if (type < ChessBoard.PAWN || type >= ChessBoard.KING) {
+			throw new IllegalArgumentException("A side has exactly one king");
+		}
+	}
+
+	private static int[] types(String letters, String name) {
+		int[] types = new int[letters.length()];
+		for (int i = 0; i < letters.length(); i++) {
+			types[i] = LETTERS.indexOf(letters.charAt(i));
+			if (types[i] < 0) {
+				throw new IllegalArgumentException("Invalid material " + name);
+			}
+		}
+		return types;
+	}
+
+	private static String letters(int[] types) {
+		StringBuilder sb = new StringBuilder();
+		for (int type : types) {
+			sb.append(LETTERS.charAt(type));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Material && ((Material) other).name.equals(name);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,121 @@
+package chess.tablebase;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * The distance to mate of every position of one material, from the point of
+ * view of the side to move. A position is indexed by the squares of its slots
+ * (see Material), six bits each with slot 0 lowest, followed by the side to
+ * move as the Color ordinal: index = squares << 1 | side.
+ *
+ * One byte per position: INVALID for positions that cannot occur, DRAW, or
+ * the distance to mate in plies plus 2. An even distance means the side to
+ * move is mated, an odd one that it mates.
+ *
+ * On disk the table is GZIP compressed, with the positions of each side to
+ * move stored apart since they compress better that way.
+ */
+public class Tablebase {
+
+	static final int INVALID = 0;
+	static final int DRAW = 1;
+	static final int MAX_DISTANCE = 252;
+
+	private static final int MAGIC = 0x43485442; // "CHTB"
+	private static final int VERSION = 1;
+
+	private final Material material;
+	private final byte[] codes;
+
+	Tablebase(Material material, byte[] codes) {
+		this.material = material;
+		this.codes = codes;
+	}
+
+	public Material getMaterial() {
+		return material;
+	}
+
+	public int size() {
+		return codes.length;
+	}
+
+	static int size(Material material) {
+		return 2 << (6 * material.slots());
+	}
+
+	int code(int index) {
+		return codes[index] & 0xFF;
+	}
+
+	static int codeOf(int distance) {
+		return distance + 2;
+	}
+
+	static int distance(int code) {
+		return code - 2;
+	}
+
+	static boolean isWin(int code) {
+		return code > DRAW && (distance(code) & 1) != 0;
+	}
+
+	static boolean isLoss(int code) {
+		return code > DRAW && (distance(code) & 1) == 0;
+	}
+
+	void save(Path path) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(path), 1 << 16)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(material.toString());
+			out.writeInt(codes.length);
+			for (int side = 0; side < 2; side++) {
+				for (int index = side; index < codes.length; index += 2) {
+					out.write(codes[index]);
+				}
+			}
+		}
+	}
+
+	static Tablebase load(Path path) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path), 1 << 16)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(path + " is not a tablebase");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException(path + " has unsupported tablebase version " + version);
+			}
+			Material material = Material.of(in.readUTF());
+			int length = in.readInt();
+			if (length != size(material)) {
+				throw new IOException(path + " has the wrong size for " + material);
+			}
+			byte[] half = new byte[length / 2];
+			byte[] codes = new byte[length];
+			for (int side = 0; side < 2; side++) {
+				in.readFully(half);
+				for (int i = 0; i < half.length; i++) {
+					codes[2 * i + side] = half[i];
+				}
+			}
+			return new Tablebase(material, codes);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return material + " (" + codes.length + " positions)";
+	}
+}
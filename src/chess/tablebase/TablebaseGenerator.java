@@ -0,0 +1,480 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+import chess.Attacks;
+import chess.ChessBoard;
+import chess.color.Color;
+
+/*
+ * Retrograde analysis of one material. A first pass over every position
+ * finds the mates, counts the moves that stay in the table and probes the
+ * smaller tables for captures and promotions. Then the positions are resolved
+ * one distance at a time: the predecessors of a position lost in d plies are
+ * won in d + 1, and a position whose moves all lead to won positions is lost
+ * once the longest of them is known. Positions never resolved are draws.
+ *
+ * Each pass runs over the positions in chunks spread over a ForkJoinPool.
+ * Within a distance, the only writes to a shared position are the same win
+ * stored twice or an atomic decrement of its move counter, so the chunks need
+ * no locking.
+ */
+final class TablebaseGenerator {
+
+	private static final int UNKNOWN = 0xFF;
+	// set in the exit byte when a capture or promotion wins; the low bits hold its distance
+	private static final int WIN_EXIT = 0x80;
+	private static final int MAX_EXIT = 0x7F;
+	private static final int CHUNK = 1 << 15;
+
+	private final Material material;
+	private final int slots;
+	private final int[] colors;
+	private final int[] types;
+	private final int size;
+	private final ForkJoinPool pool;
+
+	private final byte[] codes;
+	// legal moves not known to lose, and the distance a capture or promotion gives
+	private final AtomicIntegerArray counters;
+	private final byte[] exits;
+	private final AtomicInteger maxExit = new AtomicInteger();
+
+	// tables reached by captures and promotions: [captured slot], [pawn slot][type], [pawn slot][captured slot][type]
+	private final Exit[] captureExits;
+	private final Exit[][] promotionExits;
+	private final Exit[][][] promotionCaptureExits;
+
+	TablebaseGenerator(Material material, Tablebases tablebases, ForkJoinPool pool) throws IOException {
+		this.material = material;
+		this.slots = material.slots();
+		this.colors = new int[slots];
+		this.types = new int[slots];
+		for (int slot = 0; slot < slots; slot++) {
+			colors[slot] = material.color(slot);
+			types[slot] = material.type(slot);
+		}
+		this.size = Tablebase.size(material);
+		this.pool = pool;
+		this.codes = new byte[size];
+		this.counters = new AtomicIntegerArray(size);
+		this.exits = new byte[size];
+
+		captureExits = new Exit[slots];
+		promotionExits = new Exit[slots][];
+		promotionCaptureExits = new Exit[slots][][];
+		for (int captured = 2; captured < slots; captured++) {
+			captureExits[captured] = exit(tablebases, captured, -1, 0);
+		}
+		for (int pawn = 2; pawn < slots; pawn++) {
+			if (types[pawn] != ChessBoard.PAWN) {
+				continue;
+			}
+			promotionExits[pawn] = new Exit[ChessBoard.KING];
+			promotionCaptureExits[pawn] = new Exit[slots][ChessBoard.KING];
+			for (int type = ChessBoard.KNIGHT; type <= ChessBoard.QUEEN; type++) {
+				promotionExits[pawn][type] = exit(tablebases, -1, pawn, type);
+				for (int captured = 2; captured < slots; captured++) {
+					if (colors[captured] != colors[pawn]) {
+						promotionCaptureExits[pawn][captured][type] = exit(tablebases, captured, pawn, type);
+					}
+				}
+			}
+		}
+	}
+
+	Tablebase generate() {
+		parallel(this::initialize);
+		for (int distance = 0;; distance++) {
+			if (distance + 1 > Tablebase.MAX_DISTANCE) {
+				throw new IllegalStateException("Distance to mate too long for " + material);
+			}
+			int d = distance;
+			if (d > 0) {
+				parallel((from, to) -> resolveExits(from, to, d));
+			}
+			long resolved = parallel((from, to) -> retract(from, to, d));
+			if (resolved == 0 && distance >= maxExit.get()) {
+				break;
+			}
+		}
+		parallel(this::finish);
+		return new Tablebase(material, codes);
+	}
+
+	private interface Range {
+		long run(int from, int to);
+	}
+
+	private long parallel(Range range) {
+		int chunks = (size + CHUNK - 1) / CHUNK;
+		return pool.submit(() -> IntStream.range(0, chunks).parallel()
+				.mapToLong(chunk -> range.run(chunk * CHUNK, Math.min(size, (chunk + 1) * CHUNK))).sum()).join();
+	}
+
+	private long initialize(int from, int to) {
+		int[] squares = new int[slots];
+		Tally tally = new Tally();
+		int chunkMaxExit = 0;
+		for (int index = from; index < to; index++) {
+			int us = decode(index, squares);
+			long occupied = occupied(squares, -1);
+			if (!isValid(squares, us, occupied)) {
+				codes[index] = Tablebase.INVALID;
+				continue;
+			}
+			tally.clear();
+			long own = pieces(squares, us);
+			long enemy = occupied & ~own;
+			for (int slot = 0; slot < slots; slot++) {
+				if (colors[slot] != us) {
+					continue;
+				}
+				int square = squares[slot];
+				if (types[slot] != ChessBoard.PAWN) {
+					for (long targets = attacks(slot, square, occupied) & ~own; targets != 0; targets &= targets - 1) {
+						int target = Long.numberOfTrailingZeros(targets);
+						int captured = slotAt(squares, target);
+						if (isLegal(squares, us, slot, target, captured)) {
+							tally.add(captured < 0 ? Tablebase.INVALID
+									: captureExits[captured].code(squares, slot, target, 1 - us));
+						}
+					}
+					continue;
+				}
+
+				int forward = us == Color.WHITE.ordinal() ? square - 8 : square + 8;
+				boolean promotes = ChessBoard.row(forward) == 0 || ChessBoard.row(forward) == 7;
+				long targets = Attacks.PAWN[us][square] & enemy;
+				if ((occupied & 1L << forward) == 0) {
+					targets |= 1L << forward;
+					int twoForward = us == Color.WHITE.ordinal() ? square - 16 : square + 16;
+					if (ChessBoard.row(square) == (us == Color.WHITE.ordinal() ? 6 : 1)
+							&& (occupied & 1L << twoForward) == 0 && isLegal(squares, us, slot, twoForward, -1)) {
+						tally.add(Tablebase.INVALID);
+					}
+				}
+				for (; targets != 0; targets &= targets - 1) {
+					int target = Long.numberOfTrailingZeros(targets);
+					int captured = slotAt(squares, target);
+					if (!isLegal(squares, us, slot, target, captured)) {
+						continue;
+					}
+					if (!promotes) {
+						tally.add(captured < 0 ? Tablebase.INVALID
+								: captureExits[captured].code(squares, slot, target, 1 - us));
+						continue;
+					}
+					for (int type = ChessBoard.KNIGHT; type <= ChessBoard.QUEEN; type++) {
+						Exit exit = captured < 0 ? promotionExits[slot][type] : promotionCaptureExits[slot][captured][type];
+						tally.add(exit.code(squares, slot, target, 1 - us));
+					}
+				}
+			}
+
+			if (tally.legal == 0) {
+				int king = squares[us == Color.WHITE.ordinal() ? 0 : 1];
+				boolean check = isAttacked(squares, king, 1 - us, occupied, -1);
+				codes[index] = (byte) (check ? Tablebase.codeOf(0) : Tablebase.DRAW);
+				continue;
+			}
+			if (tally.exitWin > MAX_EXIT || tally.exitLoss > MAX_EXIT) {
+				throw new IllegalStateException("Distance to mate too long for " + material);
+			}
+			codes[index] = (byte) UNKNOWN;
+			counters.set(index, tally.count);
+			exits[index] = (byte) (tally.exitWin > 0 ? WIN_EXIT | tally.exitWin : tally.exitLoss);
+			// a position with moves left in the table can still end up waiting for its slowest losing exit
+			chunkMaxExit = Math.max(chunkMaxExit, tally.exitWin > 0 ? tally.exitWin : tally.exitLoss);
+		}
+		maxExit.accumulateAndGet(chunkMaxExit, Math::max);
+		return 0;
+	}
+
+	// the legal moves of one position, and what the captures and promotions among them lead to
+	private static final class Tally {
+
+		private int legal;
+		private int count;
+		private int exitWin;
+		private int exitLoss;
+
+		void clear() {
+			legal = 0;
+			count = 0;
+			exitWin = 0;
+			exitLoss = 0;
+		}
+
+		// a legal move; code is what a capture or promotion leads to, INVALID for a move inside the table
+		void add(int code) {
+			legal++;
+			if (Tablebase.isWin(code)) {
+				// the opponent mates after this move: it only counts towards the distance of a loss
+				exitLoss = Math.max(exitLoss, Tablebase.distance(code) + 1);
+				return;
+			}
+			count++;
+			if (Tablebase.isLoss(code)) {
+				int distance = Tablebase.distance(code) + 1;
+				exitWin = exitWin == 0 ? distance : Math.min(exitWin, distance);
+			}
+		}
+	}
+
+	// positions whose distance is set by a capture or a promotion rather than by the moves inside the table
+	private long resolveExits(int from, int to, int distance) {
+		long resolved = 0;
+		for (int index = from; index < to; index++) {
+			if ((codes[index] & 0xFF) != UNKNOWN) {
+				continue;
+			}
+			int exit = exits[index] & 0xFF;
+			if ((exit & WIN_EXIT) != 0 ? (exit & MAX_EXIT) == distance : counters.get(index) == 0 && exit == distance) {
+				codes[index] = (byte) Tablebase.codeOf(distance);
+				resolved++;
+			}
+		}
+		return resolved;
+	}
+
+	// takes back every move leading to a position at this distance, resolving its predecessors
+	private long retract(int from, int to, int distance) {
+		int target = Tablebase.codeOf(distance);
+		int[] squares = new int[slots];
+		long resolved = 0;
+		for (int index = from; index < to; index++) {
+			if ((codes[index] & 0xFF) != target) {
+				continue;
+			}
+			resolved++;
+			int them = 1 - decode(index, squares);
+			long occupied = occupied(squares, -1);
+			int packed = index >>> 1;
+			for (int slot = 0; slot < slots; slot++) {
+				if (colors[slot] != them) {
+					continue;
+				}
+				int square = squares[slot];
+				long sources;
+				if (types[slot] == ChessBoard.PAWN) {
+					int back = them == Color.WHITE.ordinal() ? 8 : -8;
+					int before = square + back;
+					sources = 0;
+					if (before >= 0 && before < 64 && (occupied & 1L << before) == 0) {
+						sources |= 1L << before;
+						int twoBefore = before + back;
+						int fourth = them == Color.WHITE.ordinal() ? 4 : 3;
+						if (ChessBoard.row(square) == fourth && (occupied & 1L << twoBefore) == 0) {
+							sources |= 1L << twoBefore;
+						}
+					}
+				} else {
+					sources = attacks(slot, square, occupied) & ~occupied;
+				}
+				int shift = 6 * slot;
+				for (; sources != 0; sources &= sources - 1) {
+					int source = Long.numberOfTrailingZeros(sources);
+					int predecessor = (packed & ~(63 << shift) | source << shift) << 1 | them;
+					if ((codes[predecessor] & 0xFF) != UNKNOWN) {
+						continue;
+					}
+					if ((distance & 1) == 0) {
+						codes[predecessor] = (byte) Tablebase.codeOf(distance + 1);
+					} else if (counters.decrementAndGet(predecessor) == 0
+							&& (exits[predecessor] & 0xFF) <= distance + 1) {
+						// every move loses; unless a capture loses more slowly, this was the slowest
+						codes[predecessor] = (byte) Tablebase.codeOf(distance + 1);
+					}
+				}
+			}
+		}
+		return resolved;
+	}
+
+	private long finish(int from, int to) {
+		for (int index = from; index < to; index++) {
+			if ((codes[index] & 0xFF) == UNKNOWN) {
+				codes[index] = Tablebase.DRAW;
+			}
+		}
+		return 0;
+	}
+
+	// fills the squares of each slot and returns the side to move
+	private int decode(int index, int[] squares) {
+		int packed = index >>> 1;
+		for (int slot = 0; slot < slots; slot++) {
+			squares[slot] = packed >>> (6 * slot) & 63;
+		}
+		return index & 1;
+	}
+
+	// one piece per square, no pawn on the first or last row, and the side not to move not in check
+	private boolean isValid(int[] squares, int us, long occupied) {
+		if (Long.bitCount(occupied) != slots) {
+			return false;
+		}
+		for (int slot = 2; slot < slots; slot++) {
+			int row = ChessBoard.row(squares[slot]);
+			if (types[slot] == ChessBoard.PAWN && (row == 0 || row == 7)) {
+				return false;
+			}
+		}
+		int theirKing = squares[us == Color.WHITE.ordinal() ? 1 : 0];
+		return !isAttacked(squares, theirKing, us, occupied, -1);
+	}
+
+	// whether moving slot to target (capturing the piece in slot captured, or -1) leaves our king safe
+	private boolean isLegal(int[] squares, int us, int slot, int target, int captured) {
+		int source = squares[slot];
+		squares[slot] = target;
+		long occupied = occupied(squares, captured);
+		boolean legal = !isAttacked(squares, squares[us == Color.WHITE.ordinal() ? 0 : 1], 1 - us, occupied, captured);
+		squares[slot] = source;
+		return legal;
+	}
+
+	private boolean isAttacked(int[] squares, int square, int by, long occupied, int captured) {
+		for (int slot = 0; slot < slots; slot++) {
+			if (colors[slot] == by && slot != captured && (attacks(slot, squares[slot], occupied) & 1L << square) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long attacks(int slot, int square, long occupied) {
+		switch (types[slot]) {
+		case ChessBoard.PAWN:
+			return Attacks.PAWN[colors[slot]][square];
+		case ChessBoard.KNIGHT:
+			return Attacks.KNIGHT[square];
+		case ChessBoard.BISHOP:
+			return Attacks.bishop(square, occupied);
+		case ChessBoard.ROOK:
+			return Attacks.rook(square, occupied);
+		case ChessBoard.QUEEN:
+			return Attacks.queen(square, occupied);
+		default:
+			return Attacks.KING[square];
+		}
+	}
+
+	private long occupied(int[] squares, int captured) {
+		long occupied = 0;
+		for (int slot = 0; slot < slots; slot++) {
+			if (slot != captured) {
+				occupied |= 1L << squares[slot];
+			}
+		}
+		return occupied;
+	}
+
+	private long pieces(int[] squares, int color) {
+		long pieces = 0;
+		for (int slot = 0; slot < slots; slot++) {
+			if (colors[slot] == color) {
+				pieces |= 1L << squares[slot];
+			}
+		}
+		return pieces;
+	}
+
+	private int slotAt(int[] squares, int square) {
+		for (int slot = 0; slot < slots; slot++) {
+			if (squares[slot] == square) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * The table a capture and/or promotion leads to: the slot in the smaller
+	 * material of every slot left, and whether that table is the mirrored one.
+	 */
+	private Exit exit(Tablebases tablebases, int captured, int promoted, int promotion) throws IOException {
+		int left = captured < 0 ? slots : slots - 1;
+		int[] pieceColors = new int[left];
+		int[] pieceTypes = new int[left];
+		int[] original = new int[left];
+		int white = 0;
+		int black = 0;
+		for (int slot = 0, i = 0; slot < slots; slot++) {
+			if (slot == captured) {
+				continue;
+			}
+			pieceColors[i] = colors[slot];
+			pieceTypes[i] = slot == promoted ? promotion : types[slot];
+			original[i++] = slot;
+			if (slot >= 2) {
+				if (colors[slot] == Color.WHITE.ordinal()) {
+					white++;
+				} else {
+					black++;
+				}
+			}
+		}
+		int[] whiteTypes = new int[white];
+		int[] blackTypes = new int[black];
+		white = 0;
+		black = 0;
+		for (int i = 0; i < left; i++) {
+			if (pieceTypes[i] != ChessBoard.KING) {
+				if (pieceColors[i] == Color.WHITE.ordinal()) {
+					whiteTypes[white++] = pieceTypes[i];
+				} else {
+					blackTypes[black++] = pieceTypes[i];
+				}
+			}
+		}
+		Material child = Material.of(whiteTypes, blackTypes);
+		boolean flip = !child.isCanonical();
+		Material canonical = child.canonical();
+		int[] slotOf = new int[slots];
+		Arrays.fill(slotOf, -1);
+		if (canonical.slots() == 2) {
+			// bare kings: always a draw
+			return new Exit(null, flip, slotOf);
+		}
+		int[] childSlots = canonical.slotsOf(pieceColors, pieceTypes, flip);
+		for (int i = 0; i < left; i++) {
+			slotOf[original[i]] = childSlots[i];
+		}
+		return new Exit(tablebases.generate(canonical, pool), flip, slotOf);
+	}
+
+	private static final class Exit {
+
+		private final Tablebase table;
+		private final boolean flip;
+		private final int[] slotOf;
+
+		Exit(Tablebase table, boolean flip, int[] slotOf) {
+			this.table = table;
+			this.flip = flip;
+			this.slotOf = slotOf;
+		}
+
+		// code of the position after the piece in slot mover went to target, with side to move next
+		int code(int[] squares, int mover, int target, int side) {
+			if (table == null) {
+				return Tablebase.DRAW;
+			}
+			int packed = 0;
+			for (int slot = 0; slot < slotOf.length; slot++) {
+				if (slotOf[slot] >= 0) {
+					int square = slot == mover ? target : squares[slot];
+					packed |= (flip ? square ^ 56 : square) << (6 * slotOf[slot]);
+				}
+			}
+			return table.code(packed << 1 | (flip ? 1 - side : side));
+		}
+	}
+}
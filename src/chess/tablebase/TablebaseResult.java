@@ -0,0 +1,44 @@
+package chess.tablebase;
+
+/*
+ * What a tablebase knows about a position, from the point of view of the side
+ * to move: a win, a loss or a draw with best play, and for a win or a loss
+ * the number of plies to mate.
+ */
+public class TablebaseResult {
+
+	private final int code;
+
+	TablebaseResult(int code) {
+		this.code = code;
+	}
+
+	public boolean isWin() {
+		return Tablebase.isWin(code);
+	}
+
+	public boolean isLoss() {
+		return Tablebase.isLoss(code);
+	}
+
+	public boolean isDraw() {
+		return code == Tablebase.DRAW;
+	}
+
+	// plies to mate with best play on both sides, or -1 for a draw
+	public int getDistanceToMate() {
+		return isDraw() ? -1 : Tablebase.distance(code);
+	}
+
+	@Override
+	public String toString() {
+		if (isDraw()) {
+			return "draw";
+		}
+		if (getDistanceToMate() == 0) {
+			return "checkmated";
+		}
+		int moves = (getDistanceToMate() + 1) / 2;
+		return (isWin() ? "win" : "loss") + ", mate in " + moves + (moves == 1 ? " move" : " moves");
+	}
+}
@@ -0,0 +1,175 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+import chess.color.Color;
+
+/*
+ * The tablebases kept in a directory, one "<material>.tb.gz" file per
+ * material. Tables are loaded the first time a position needs them and stay
+ * in memory; generate() builds a missing table, and the smaller tables it
+ * depends on, and saves them in the directory.
+ *
+ * Positions with castling rights are not covered. En passant never is either,
+ * which is why a material cannot have pawns on both sides.
+ */
+public class Tablebases {
+
+	public static final String SUFFIX = ".tb.gz";
+
+	private Path directory;
+	private Map<Material, Tablebase> tables = new HashMap<>();
+
+	public Tablebases(Path directory) {
+		this.directory = directory;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	// the table of a material, loaded from the directory, or null when it has not been generated
+	public synchronized Tablebase get(Material material) throws IOException {
+		Material canonical = material.canonical();
+		Tablebase table = tables.get(canonical);
+		if (table == null) {
+			Path path = path(canonical);
+			if (!Files.exists(path)) {
+				return null;
+			}
+			table = Tablebase.load(path);
+			tables.put(canonical, table);
+		}
+		return table;
+	}
+
+	// the table of a material, generated with the threads of the pool when it is missing
+	public synchronized Tablebase generate(Material material, ForkJoinPool pool) throws IOException {
+		Material canonical = material.canonical();
+		Tablebase table = get(canonical);
+		if (table == null) {
+			if (canonical.hasPawnsOnBothSides()) {
+				throw new IllegalArgumentException("En passant is not supported, so " + canonical
+						+ " cannot have pawns on both sides");
+			}
+			table = new TablebaseGenerator(canonical, this, pool).generate();
+			Files.createDirectories(directory);
+			table.save(path(canonical));
+			tables.put(canonical, table);
+		}
+		return table;
+	}
+
+	/*
+	 * The tablebase result of the position, or null when it has more pieces
+	 * than a tablebase holds, castling rights, or a material whose table is not
+	 * in the directory.
+	 */
+	public TablebaseResult probe(ChessMatch chessMatch) {
+		int code = code(chessMatch);
+		return code == Tablebase.INVALID ? null : new TablebaseResult(code);
+	}
+
+	/*
+	 * A move that keeps the result of the position: the fastest mate when it
+	 * is won, the slowest when it is lost, or one that keeps the draw. Returns
+	 * Move.NONE when the position is not covered.
+	 */
+	public int bestMove(ChessMatch chessMatch) {
+		int code = code(chessMatch);
+		if (code == Tablebase.INVALID) {
+			return Move.NONE;
+		}
+		MoveList moves = new MoveList();
+		chessMatch.generateLegalMoves(moves);
+		for (int i = 0; i < moves.size(); i++) {
+			chessMatch.makeMove(moves.get(i));
+			int next = code(chessMatch);
+			chessMatch.unmakeMove();
+			boolean keeps = code == Tablebase.DRAW ? next == Tablebase.DRAW
+					: next > Tablebase.DRAW && Tablebase.distance(next) == Tablebase.distance(code) - 1;
+			if (keeps) {
+				return moves.get(i);
+			}
+		}
+		return Move.NONE;
+	}
+
+	private int code(ChessMatch chessMatch) {
+		if (chessMatch.getCastlingRights() != 0 || Long.bitCount(chessMatch.getOccupied()) > Material.MAX_PIECES) {
+			return Tablebase.INVALID;
+		}
+		int count = Long.bitCount(chessMatch.getOccupied());
+		int[] colors = new int[count];
+		int[] types = new int[count];
+		int[] squares = new int[count];
+		int white = 0;
+		int black = 0;
+		int i = 0;
+		for (Color color : Color.values()) {
+			for (int type = ChessBoard.PAWN; type <= ChessBoard.KING; type++) {
+				for (long pieces = chessMatch.getBitboard(color, type); pieces != 0; pieces &= pieces - 1) {
+					colors[i] = color.ordinal();
+					types[i] = type;
+					squares[i++] = Long.numberOfTrailingZeros(pieces);
+					if (type != ChessBoard.KING) {
+						if (color == Color.WHITE) {
+							white++;
+						} else {
+							black++;
+						}
+					}
+				}
+			}
+		}
+		int[] whiteTypes = new int[white];
+		int[] blackTypes = new int[black];
+		white = 0;
+		black = 0;
+		for (i = 0; i < count; i++) {
+			if (types[i] != ChessBoard.KING) {
+				if (colors[i] == Color.WHITE.ordinal()) {
+					whiteTypes[white++] = types[i];
+				} else {
+					blackTypes[black++] = types[i];
+				}
+			}
+		}
+
+		Material material = Material.of(whiteTypes, blackTypes);
+		if (material.slots() == 2) {
+			return Tablebase.DRAW;
+		}
+		Tablebase table;
+		try {
+			table = get(material);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (table == null) {
+			return Tablebase.INVALID;
+		}
+		boolean flip = !material.isCanonical();
+		int[] slots = table.getMaterial().slotsOf(colors, types, flip);
+		int packed = 0;
+		for (i = 0; i < count; i++) {
+			packed |= (flip ? squares[i] ^ 56 : squares[i]) << (6 * slots[i]);
+		}
+		int side = chessMatch.getCurrentPlayer().ordinal();
+		return table.code(packed << 1 | (flip ? 1 - side : side));
+	}
+
+	private Path path(Material material) {
+		return directory.resolve(material + SUFFIX);
+	}
+}